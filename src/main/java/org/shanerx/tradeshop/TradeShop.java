@@ -26,10 +26,12 @@
 package org.shanerx.tradeshop;
 
 import org.bstats.bukkit.Metrics;
+import org.bukkit.World;
 import org.bukkit.plugin.PluginManager;
 import org.bukkit.plugin.java.JavaPlugin;
 import org.shanerx.tradeshop.commands.CommandCaller;
 import org.shanerx.tradeshop.commands.CommandTabCaller;
+import org.shanerx.tradeshop.enumys.DataType;
 import org.shanerx.tradeshop.enumys.Message;
 import org.shanerx.tradeshop.enumys.Setting;
 import org.shanerx.tradeshop.enumys.ShopSign;
@@ -39,6 +41,13 @@ import org.shanerx.tradeshop.objects.Debug;
 import org.shanerx.tradeshop.objects.ListManager;
 import org.shanerx.tradeshop.utils.BukkitVersion;
 import org.shanerx.tradeshop.utils.Updater;
+import org.shanerx.tradeshop.utils.data.ItemTemplateCache;
+import org.shanerx.tradeshop.utils.data.PlayerSettingsCache;
+import org.shanerx.tradeshop.utils.data.ShopDataStore;
+import org.shanerx.tradeshop.utils.data.ShopIndex;
+import org.shanerx.tradeshop.utils.data.ShopRegistry;
+import org.shanerx.tradeshop.utils.data.SignRenderQueue;
+import org.shanerx.tradeshop.utils.data.StorageCache;
 
 public class TradeShop extends JavaPlugin {
 
@@ -52,6 +61,20 @@ public class TradeShop extends JavaPlugin {
 
 	private Debug debugger;
 
+	private ShopDataStore dataStore;
+
+	private ShopRegistry shopRegistry;
+
+	private PlayerSettingsCache playerSettings;
+
+	private StorageCache storageCache;
+
+	private ShopIndex shopIndex;
+
+	private SignRenderQueue signRenderQueue;
+
+	private ItemTemplateCache itemCache;
+
 	public ListManager getListManager() {
 		return lists;
 	}
@@ -76,6 +99,34 @@ public class TradeShop extends JavaPlugin {
 		return debugger;
 	}
 
+	public ShopDataStore getDataStore() {
+		return dataStore;
+	}
+
+	public ShopRegistry getShopRegistry() {
+		return shopRegistry;
+	}
+
+	public PlayerSettingsCache getPlayerSettings() {
+		return playerSettings;
+	}
+
+	public StorageCache getStorageCache() {
+		return storageCache;
+	}
+
+	public ItemTemplateCache getItemCache() {
+		return itemCache;
+	}
+
+	public SignRenderQueue getSignRenderQueue() {
+		return signRenderQueue;
+	}
+
+	public ShopIndex getShopIndex() {
+		return shopIndex;
+	}
+
 	@Override
 	public void onEnable() {
 		version = new BukkitVersion();
@@ -99,6 +150,17 @@ public class TradeShop extends JavaPlugin {
         signs = new ShopSign();
         storages = new ShopStorage();
 		lists = new ListManager();
+		// Items may be decoded while the store imports older data
+		itemCache = new ItemTemplateCache();
+		dataStore = DataType.match(Setting.DATA_STORAGE_TYPE.getString()).createStore();
+		dataStore.open();
+		storageCache = new StorageCache();
+		shopIndex = new ShopIndex();
+		signRenderQueue = new SignRenderQueue();
+		shopRegistry = new ShopRegistry(dataStore);
+		shopRegistry.start();
+		playerSettings = new PlayerSettingsCache(dataStore);
+		playerSettings.start();
 
 		PluginManager pm = getServer().getPluginManager();
 		pm.registerEvents(new JoinEventListener(this), this);
@@ -107,6 +169,11 @@ public class TradeShop extends JavaPlugin {
 		pm.registerEvents(new ShopTradeListener(), this);
 		pm.registerEvents(new CustomInventoryListener(), this);
         pm.registerEvents(new ShopRestockListener(this), this);
+		pm.registerEvents(new ChunkDataListener(this), this);
+
+		for (World world : getServer().getWorlds()) {
+			shopRegistry.loadWorld(world.getName());
+		}
 
 		getCommand("tradeshop").setExecutor(new CommandCaller(this));
 		getCommand("tradeshop").setTabCompleter(new CommandTabCaller(this));
@@ -124,4 +191,23 @@ public class TradeShop extends JavaPlugin {
 		}
 
 	}
+
+	@Override
+	public void onDisable() {
+		if (signRenderQueue != null) {
+			signRenderQueue.shutdown();
+		}
+
+		if (shopRegistry != null) {
+			shopRegistry.shutdown();
+		}
+
+		if (playerSettings != null) {
+			playerSettings.shutdown();
+		}
+
+		if (dataStore != null) {
+			dataStore.close();
+		}
+	}
 }
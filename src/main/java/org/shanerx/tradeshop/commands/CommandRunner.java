@@ -27,7 +27,6 @@ package org.shanerx.tradeshop.commands;
 
 import org.bukkit.Bukkit;
 import org.bukkit.Material;
-import org.bukkit.Nameable;
 import org.bukkit.OfflinePlayer;
 import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
@@ -41,15 +40,16 @@ import org.shanerx.tradeshop.framework.ShopChange;
 import org.shanerx.tradeshop.framework.events.PlayerShopChangeEvent;
 import org.shanerx.tradeshop.framework.events.PlayerShopCloseEvent;
 import org.shanerx.tradeshop.framework.events.PlayerShopOpenEvent;
+import org.shanerx.tradeshop.objects.PlayerSettings;
 import org.shanerx.tradeshop.objects.Shop;
 import org.shanerx.tradeshop.objects.ShopChest;
 import org.shanerx.tradeshop.objects.ShopUser;
-import org.shanerx.tradeshop.utils.JsonConfiguration;
+import org.shanerx.tradeshop.utils.BlockStates;
 import org.shanerx.tradeshop.utils.ObjectHolder;
 import org.shanerx.tradeshop.utils.Utils;
 
 import java.util.ArrayList;
-import java.util.Map;
+import java.util.List;
 
 public class CommandRunner extends Utils {
 
@@ -133,6 +133,8 @@ public class CommandRunner extends Utils {
 		plugin.getListManager().reload();
 		Message.reload();
 		Setting.reload();
+		plugin.getStorageCache().clear();
+		plugin.getItemCache().reload();
 		sendMessage(getPrefix() + "&6The configuration files have been reloaded!");
 	}
 
@@ -368,7 +370,7 @@ public class CommandRunner extends Utils {
 			itemInHand.setAmount(amount);
 		}
 
-		if (shop.getProduct().size() + Math.ceil((double) itemInHand.getAmount() / (double) itemInHand.getMaxStackSize()) > Setting.MAX_ITEMS_PER_TRADE_SIDE.getInt()) {
+		if (countStacks(shop.getProduct()) + Math.ceil((double) itemInHand.getAmount() / (double) itemInHand.getMaxStackSize()) > Setting.MAX_ITEMS_PER_TRADE_SIDE.getInt()) {
 			sendMessage(Message.TOO_MANY_ITEMS.getPrefixed().replaceAll("%side%", "products"));
 			return;
 		}
@@ -508,7 +510,7 @@ public class CommandRunner extends Utils {
 			itemInHand.setAmount(amount);
 		}
 
-		if (shop.getCost().size() + Math.ceil((double) itemInHand.getAmount() / (double) itemInHand.getMaxStackSize()) > Setting.MAX_ITEMS_PER_TRADE_SIDE.getInt()) {
+		if (countStacks(shop.getCost()) + Math.ceil((double) itemInHand.getAmount() / (double) itemInHand.getMaxStackSize()) > Setting.MAX_ITEMS_PER_TRADE_SIDE.getInt()) {
 			sendMessage(Message.TOO_MANY_ITEMS.getPrefixed().replaceAll("%side%", "costs"));
 			return;
 		}
@@ -547,7 +549,6 @@ public class CommandRunner extends Utils {
 		if (event.isCancelled()) return;
 		
 		boolean opened = shop.setOpen();
-		shop.saveShop();
 
 		if (opened) {
 			sendMessage(Message.CHANGE_OPEN.getPrefixed());
@@ -576,8 +577,6 @@ public class CommandRunner extends Utils {
 		if (event.isCancelled()) return;
 
         shop.setStatus(ShopStatus.CLOSED);
-		shop.saveShop();
-		shop.updateSign();
 
 		sendMessage(Message.CHANGE_CLOSED.getPrefixed());
 	}
@@ -610,8 +609,10 @@ public class CommandRunner extends Utils {
 		if (shop == null)
 			return;
 
-		int productRows = (int) Math.ceil(shop.getProduct().size() / 3.0),
-				costRows = (int) Math.ceil(shop.getCost().size() / 3.0),
+		List<ItemStack> costStacks = splitStacks(shop.getCost()),
+				productStacks = splitStacks(shop.getProduct());
+		int productRows = (int) Math.ceil(productStacks.size() / 3.0),
+				costRows = (int) Math.ceil(costStacks.size() / 3.0),
 				invSize = (Math.max(productRows, costRows) + 1) * 9;
 
 		Inventory shopContents = Bukkit.createInventory(null, invSize, colorize(shop.getShopType() == ShopType.ITRADE ? Setting.ITRADESHOP_OWNER.getString() : Bukkit.getOfflinePlayer(shop.getOwner().getUUID()).getName() + "'s Shop                                 "));
@@ -686,7 +687,7 @@ public class CommandRunner extends Utils {
 
 		counter = 12;
 		int counter2 = 0;
-		for (ItemStack iS : shop.getCost()) {
+		for (ItemStack iS : costStacks) {
 			shopContents.setItem(counter, iS);
 			if (counter2 == 2) {
 				counter2 = 0;
@@ -699,7 +700,7 @@ public class CommandRunner extends Utils {
 
 		counter = 14;
 		counter2 = 0;
-		for (ItemStack iS : shop.getProduct()) {
+		for (ItemStack iS : productStacks) {
 			shopContents.setItem(counter, iS);
 			if (counter2 == 2) {
 				counter2 = 0;
@@ -875,11 +876,14 @@ public class CommandRunner extends Utils {
 	 * Changes the players trade multiplier for current login
 	 */
 	public void multi() {
-		JsonConfiguration json = new JsonConfiguration(pSender.getUniqueId());
-		Map<String, Integer> data = json.loadPlayer();
+		PlayerSettings playerSettings = plugin.getPlayerSettings().get(pSender.getUniqueId());
 
 		if (command.argsSize() == 1) {
-			sendMessage(Message.MULTI_AMOUNT.getPrefixed().replaceAll("%amount%", String.valueOf(data.get("multi"))));
+			sendMessage(Message.MULTI_AMOUNT.getPrefixed().replaceAll("%amount%", playerSettings.isMaxMulti() ? "max" : String.valueOf(playerSettings.getMulti())));
+		} else if (command.getArgAt(1).equalsIgnoreCase("max")) {
+			playerSettings.setMulti(PlayerSettings.MAX_MULTI);
+
+			sendMessage(Message.MULTI_UPDATE.getPrefixed().replaceAll("%amount%", "max"));
 		} else {
 			int amount = 2;
 
@@ -889,8 +893,7 @@ public class CommandRunner extends Utils {
 			if (amount < 2)
 				amount = 2;
 
-			data.put("multi", amount);
-			json.savePlayer(data);
+			playerSettings.setMulti(amount);
 
 			sendMessage(Message.MULTI_UPDATE.getPrefixed().replaceAll("%amount%", String.valueOf(amount)));
 		}
@@ -909,11 +912,9 @@ public class CommandRunner extends Utils {
 				throw new NoSuchFieldException();
 
 			if (ShopType.isShop(b)) {
-				return Shop.loadShop((Sign) b.getState());
+				return Shop.loadShop((Sign) BlockStates.read(b));
 
-			} else if (plugin.getListManager().isInventory(b) &&
-                    ((Nameable) b.getState()).getCustomName() != null &&
-					((Nameable) b.getState()).getCustomName().contains("$ ^Sign:l_")) {
+			} else if (ShopChest.isShopChest(b)) {
 
 				ShopChest shopChest = new ShopChest(b.getLocation());
 				return Shop.loadShop(shopChest.getShopSign());
@@ -33,6 +33,7 @@ import org.shanerx.tradeshop.enumys.Commands;
 import org.shanerx.tradeshop.enumys.Setting;
 import org.shanerx.tradeshop.enumys.ShopType;
 import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.utils.BlockStates;
 import org.shanerx.tradeshop.utils.Utils;
 
 import java.util.ArrayList;
@@ -94,7 +95,7 @@ public class CommandTabCompleter extends Utils {
             if (plugin.getListManager().isInventory(b)) {
 				s = findShopSign(b);
 			} else if (ShopType.isShop(b)) {
-				s = (Sign) b.getState();
+				s = (Sign) BlockStates.read(b);
 			} else {
 				return Collections.EMPTY_LIST;
 			}
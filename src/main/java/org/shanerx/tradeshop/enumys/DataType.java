@@ -0,0 +1,69 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.enumys;
+
+import org.shanerx.tradeshop.utils.data.JsonDataStore;
+import org.shanerx.tradeshop.utils.data.SQLiteDataStore;
+import org.shanerx.tradeshop.utils.data.ShopDataStore;
+
+public enum DataType {
+
+	FLATFILE,
+	REGION,
+	SQLITE;
+
+	/**
+	 * Returns the DataType matching the name, unknown names fall back to FLATFILE
+	 *
+	 * @param name name of the type from the config
+	 * @return matching DataType
+	 */
+	public static DataType match(String name) {
+		for (DataType type : values()) {
+			if (type.name().equalsIgnoreCase(name))
+				return type;
+		}
+
+		return FLATFILE;
+	}
+
+	/**
+	 * Creates a new, unopened store for this type
+	 *
+	 * @return ShopDataStore of this type
+	 */
+	public ShopDataStore createStore() {
+		switch (this) {
+			case SQLITE:
+				return new SQLiteDataStore();
+			case REGION:
+				return new JsonDataStore(true);
+			default:
+				return new JsonDataStore(false);
+		}
+	}
+}
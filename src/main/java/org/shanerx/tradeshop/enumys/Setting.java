@@ -68,7 +68,11 @@ public enum Setting {
     ENABLE_DEBUG("enable-debug", 0),
     MESSAGE_PREFIX("message-prefix", "&a[&eTradeShop&a] "),
     MAX_SHOPS_PER_CHUNK("max-shops-per-chunk", 128),
-    MAX_ITEMS_PER_TRADE_SIDE("max-items-per-trade-side", 6);
+    MAX_ITEMS_PER_TRADE_SIDE("max-items-per-trade-side", 6),
+    DATA_FLUSH_INTERVAL("data-flush-interval", 5),
+    STOCK_RECOUNT_INTERVAL("stock-recount-interval", 300),
+    ITEM_CACHE_SIZE("item-cache-size", 1024),
+    DATA_STORAGE_TYPE("data-storage-type", "FLATFILE");
 
 	private static TradeShop plugin = (TradeShop) Bukkit.getPluginManager().getPlugin("TradeShop");
 	private static File file = new File(plugin.getDataFolder(), "config.yml");
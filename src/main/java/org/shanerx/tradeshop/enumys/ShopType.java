@@ -25,13 +25,14 @@
 
 package org.shanerx.tradeshop.enumys;
 
-import com.google.gson.Gson;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.block.Block;
 import org.bukkit.block.Sign;
 import org.bukkit.entity.Player;
 import org.shanerx.tradeshop.TradeShop;
+import org.shanerx.tradeshop.utils.BlockStates;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
 
 import java.io.Serializable;
 
@@ -59,7 +60,7 @@ public enum ShopType implements Serializable {
 
 	public static boolean isShop(Block b) {
 		if (b != null && plugin.getSigns().getSignTypes().contains(b.getType())) {
-			return getType((Sign) b.getState()) != null;
+			return getType((Sign) BlockStates.read(b)) != null;
 		}
 
 		return false;
@@ -82,7 +83,7 @@ public enum ShopType implements Serializable {
 	}
 
 	public static ShopRole deserialize(String serialized) {
-		ShopRole shopRole = new Gson().fromJson(serialized, ShopRole.class);
+		ShopRole shopRole = GsonProcessor.getGson().fromJson(serialized, ShopRole.class);
 		return shopRole;
 	}
 
@@ -100,7 +101,7 @@ public enum ShopType implements Serializable {
 	}
 
 	public String serialize() {
-		return new Gson().toJson(this);
+		return GsonProcessor.getGson().toJson(this);
 	}
 
 	public boolean isTrade() {
@@ -28,6 +28,7 @@ public class HopperShopAccessEvent extends InventoryMoveItemEvent {
 	 */
 	public HopperShopAccessEvent(Shop s, Inventory source, Inventory destination, ItemStack itm, boolean isForbidden) {
 		super(source, itm, destination, false);
+		this.shop = s;
 		this.isForbidden = isForbidden;
 	}
 	
@@ -34,6 +34,7 @@ import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.ItemStack;
 import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.utils.trade.TradePlan;
 
 import java.util.List;
 
@@ -41,6 +42,7 @@ import java.util.List;
  * This class represents the event which is fired when a player attempts to perform a transaction with a shop.
  * Note: This event is ONLY fired when all the necessary conditions for the transaction are met, and it is fired JUST BEFORE it happens.
  * This makes it possible to cancel the event moments before the trade takes place, by using {@link org.bukkit.event.Cancellable}.
+ * Listeners must not change the inventories of the player or the shop, the trade is not made if a slot of the planned trade was changed.
  */
 public class PlayerTradeEvent extends PlayerInteractEvent implements Cancellable {
 
@@ -49,6 +51,7 @@ public class PlayerTradeEvent extends PlayerInteractEvent implements Cancellable
 	private List<ItemStack> product;
 	private List<ItemStack> cost;
 	private Block clickedBlock;
+	private TradePlan tradePlan;
 	private boolean cancelled;
 	
 	/**
@@ -68,6 +71,21 @@ public class PlayerTradeEvent extends PlayerInteractEvent implements Cancellable
 		this.clickedBlock = clickedBlock;
 	}
 
+	/**
+	 * Constructor for the object.
+	 * @param who The {@link org.bukkit.entity.Player} object representing the player who is attempting the trade.
+	 * @param cost The object representing the items which are being traded.
+	 * @param product The object representing the items being traded for.
+	 * @param shop The object representing the shop at which the trade takes place.
+	 * @param clickedBlock The {@link org.bukkit.block.Block} that was clicked, ie. the sign.
+	 * @param clickedFace  The {@link org.bukkit.block.BlockFace} object representing the face of the block that was clicked.
+	 * @param tradePlan The {@link TradePlan} that will be applied if the event is not cancelled.
+	 */
+	public PlayerTradeEvent(Player who, List<ItemStack> cost, List<ItemStack> product, Shop shop, Block clickedBlock, BlockFace clickedFace, TradePlan tradePlan) {
+		this(who, cost, product, shop, clickedBlock, clickedFace);
+		this.tradePlan = tradePlan;
+	}
+
 	public static HandlerList getHandlerList() {
 		return handlers;
 	}
@@ -101,6 +119,15 @@ public class PlayerTradeEvent extends PlayerInteractEvent implements Cancellable
 		return cost;
 	}
 	
+	/**
+	 * The planned trade, holds the exact stacks that are taken from and given to the player.
+	 * The plan is released once the trade was made, listeners must not keep it.
+	 * @return the {@link TradePlan} of the trade, null if the event was created without one.
+	 */
+	public TradePlan getTradePlan() {
+		return tradePlan;
+	}
+	
 	/**
 	 * Returns whether or not the event has been cancelled.
 	 * @return true if the event is being cancelled.
@@ -0,0 +1,70 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.listeners;
+
+import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
+import org.bukkit.event.Listener;
+import org.bukkit.event.world.ChunkLoadEvent;
+import org.bukkit.event.world.ChunkUnloadEvent;
+import org.bukkit.event.world.WorldLoadEvent;
+import org.shanerx.tradeshop.TradeShop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.utils.Utils;
+
+public class ChunkDataListener extends Utils implements Listener {
+
+	private TradeShop plugin;
+
+	public ChunkDataListener(TradeShop instance) {
+		plugin = instance;
+	}
+
+	//Reads which chunks of the world have shops in the background, the loaded ones are preloaded afterwards
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onWorldLoad(WorldLoadEvent event) {
+		plugin.getShopRegistry().loadWorld(event.getWorld().getName());
+	}
+
+	//Loads the shops of a chunk in the background as soon as the chunk is loaded
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onChunkLoad(ChunkLoadEvent event) {
+		if (event.isNewChunk())
+			return;
+
+		plugin.getShopRegistry().preload(new ShopChunk(event.getChunk()));
+	}
+
+	//Writes and removes the shops of a chunk from memory once the chunk is unloaded
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onChunkUnload(ChunkUnloadEvent event) {
+		ShopChunk chunk = new ShopChunk(event.getChunk());
+
+		plugin.getShopRegistry().evict(chunk);
+		plugin.getStorageCache().invalidate(chunk);
+	}
+}
@@ -30,17 +30,14 @@ import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.player.PlayerJoinEvent;
+import org.bukkit.event.player.PlayerQuitEvent;
 import org.shanerx.tradeshop.TradeShop;
 import org.shanerx.tradeshop.enumys.Message;
 import org.shanerx.tradeshop.enumys.Permissions;
 import org.shanerx.tradeshop.utils.BukkitVersion;
-import org.shanerx.tradeshop.utils.JsonConfiguration;
 import org.shanerx.tradeshop.utils.Updater;
 import org.shanerx.tradeshop.utils.Utils;
 
-import java.util.HashMap;
-import java.util.Map;
-
 public class JoinEventListener extends Utils implements Listener {
 
 	private TradeShop plugin;
@@ -52,18 +49,7 @@ public class JoinEventListener extends Utils implements Listener {
 	@EventHandler(priority = EventPriority.HIGH)
 	public void onJoin(PlayerJoinEvent event) {
 		Player player = event.getPlayer();
-		JsonConfiguration json = new JsonConfiguration(player.getUniqueId());
-		Map<String, Integer> data = json.loadPlayer();
-
-		if (data == null)
-			data = new HashMap<>();
-
-		if (!data.containsKey("type"))
-			data.put("type", 0);
-
-		data.put("multi", 2);
-
-		json.savePlayer(data);
+		plugin.getPlayerSettings().load(player.getUniqueId());
 
 		if (player.hasPermission(Permissions.ADMIN.getPerm())) {
 			BukkitVersion ver = new BukkitVersion();
@@ -71,5 +57,10 @@ public class JoinEventListener extends Utils implements Listener {
 				player.sendMessage(Message.PLUGIN_BEHIND.getPrefixed());
 		}
 	}
+
+	@EventHandler(priority = EventPriority.MONITOR)
+	public void onQuit(PlayerQuitEvent event) {
+		plugin.getPlayerSettings().unload(event.getPlayer().getUniqueId());
+	}
 }
 
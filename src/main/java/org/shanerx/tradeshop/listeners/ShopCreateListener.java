@@ -42,8 +42,8 @@ import org.shanerx.tradeshop.enumys.ShopType;
 import org.shanerx.tradeshop.framework.events.PlayerShopCreateEvent;
 import org.shanerx.tradeshop.objects.Shop;
 import org.shanerx.tradeshop.objects.ShopChest;
+import org.shanerx.tradeshop.objects.ShopChunk;
 import org.shanerx.tradeshop.objects.ShopUser;
-import org.shanerx.tradeshop.utils.JsonConfiguration;
 import org.shanerx.tradeshop.utils.Tuple;
 import org.shanerx.tradeshop.utils.Utils;
 
@@ -77,9 +77,7 @@ public class ShopCreateListener extends Utils implements Listener {
 			return;
 		}
 
-		JsonConfiguration chunk = new JsonConfiguration(shopSign.getChunk());
-
-		if (Setting.MAX_SHOPS_PER_CHUNK.getInt() <= chunk.getShopCount() + 1) {
+		if (Setting.MAX_SHOPS_PER_CHUNK.getInt() <= plugin.getShopRegistry().getShopCount(new ShopChunk(shopSign.getChunk())) + 1) {
 			failedSign(event, shopType, Message.TOO_MANY_CHESTS);
 			return;
 		}
@@ -121,11 +119,13 @@ public class ShopCreateListener extends Utils implements Listener {
 		ItemStack product = lineCheck(event.getLine(1)),
 				cost = lineCheck(event.getLine(2));
 
-		if (product != null)
-			shop.setProduct(product);
+		shop.edit(s -> {
+			if (product != null)
+				s.setProduct(product);
 
-		if (cost != null)
-			shop.setCost(cost);
+			if (cost != null)
+				s.setCost(cost);
+		});
 
 		if (shop.isMissingItems()) {
 			event.setLine(0, ChatColor.GRAY + shopType.toHeader());
@@ -26,10 +26,8 @@
 package org.shanerx.tradeshop.listeners;
 
 import org.bukkit.Bukkit;
-import org.bukkit.Nameable;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
-import org.bukkit.block.BlockState;
 import org.bukkit.block.Sign;
 import org.bukkit.block.data.BlockData;
 import org.bukkit.block.data.Directional;
@@ -52,7 +50,9 @@ import org.shanerx.tradeshop.framework.events.PlayerShopInventoryOpenEvent;
 import org.shanerx.tradeshop.objects.Shop;
 import org.shanerx.tradeshop.objects.ShopChest;
 import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.utils.BlockStates;
 import org.shanerx.tradeshop.utils.Utils;
+import org.shanerx.tradeshop.utils.data.StorageCache;
 
 import java.util.ArrayList;
 import java.util.Iterator;
@@ -72,27 +72,15 @@ public class ShopProtectionListener extends Utils implements Listener {
         if (event instanceof HopperShopAccessEvent)
             return;
 
-        if (!(event.getInitiator().getType().equals(InventoryType.HOPPER) &&
-                plugin.getListManager().isInventory(event.getSource().getLocation().getBlock()))) {
+        if (!event.getInitiator().getType().equals(InventoryType.HOPPER))
             return;
-        }
-
-        Block invBlock = event.getSource().getLocation().getBlock();
 
-        Nameable fromContainer = (Nameable) invBlock.getState();
+        StorageCache.Decision decision = plugin.getStorageCache().get(event.getSource().getLocation());
 
-		if (fromContainer.getCustomName() != null && fromContainer.getCustomName().contains("$ ^Sign:l_")) {
-			Shop shop = Shop.loadShop(ShopLocation.deserialize(fromContainer.getCustomName().split("\\$ \\^")[1].split(":")[1]));
-            debugger.log("ShopProtectionListener: Shop Location as SL > " + shop.getInventoryLocationAsSL().serialize(), DebugLevels.PROTECTION);
-            boolean isForbidden = !Setting.findSetting(shop.getShopType().name() + "SHOP_HOPPER_EXPORT").getBoolean();
-            debugger.log("ShopProtectionListener: isForbidden > " + isForbidden, DebugLevels.PROTECTION);
-            debugger.log("ShopProtectionListener: checked hopper setting > " + shop.getShopType().name() + "SHOP_HOPPER_EXPORT", DebugLevels.PROTECTION);
-			HopperShopAccessEvent hopperEvent = new HopperShopAccessEvent(shop, event.getSource(), event.getDestination(), event.getItem(), isForbidden);
+        if (decision.isShop()) {
+			HopperShopAccessEvent hopperEvent = new HopperShopAccessEvent(decision.getShop(), event.getSource(), event.getDestination(), event.getItem(), !decision.isExportAllowed());
 			Bukkit.getPluginManager().callEvent(hopperEvent);
-            debugger.log("ShopProtectionListener: HopperEvent thrown! ", DebugLevels.PROTECTION);
             event.setCancelled(hopperEvent.isForbidden());
-            debugger.log("ShopProtectionListener: HopperEvent isCancelled: " + hopperEvent.isForbidden(), DebugLevels.PROTECTION);
-            debugger.log("ShopProtectionListener: HopperEvent isCancelled: " + isForbidden, DebugLevels.PROTECTION);
 		}
 	}
 
@@ -101,13 +89,19 @@ public class ShopProtectionListener extends Utils implements Listener {
 		List<Block> toRemove = new ArrayList<>();
 		for (Iterator<Block> i = event.blockList().iterator(); i.hasNext(); ) {
 			Block b = i.next();
+			if (!plugin.getShopIndex().mayBeShop(b))
+				continue;
+
 			if (ShopChest.isShopChest(b)) {
-				Shop shop = Shop.loadShop((new ShopChest(b.getLocation())).getShopSign());
-				if (shop != null) {
+				ShopLocation sign = (new ShopChest(b.getLocation())).getShopSign();
+				Shop shop = Shop.loadShop(sign);
+				if (shop == null && !plugin.getShopRegistry().isLoaded(sign)) {
+					i.remove();
+				} else if (shop != null) {
                     if (!Setting.findSetting((shop.getShopType().name() + "SHOP_EXPLODE").toUpperCase()).getBoolean())
 						i.remove();
 					else {
-						if (shop.getStorage() != null)
+						if (shop.hasStorage())
 							shop.getChestAsSC().resetName();
 						shop.remove();
 					}
@@ -115,11 +109,11 @@ public class ShopProtectionListener extends Utils implements Listener {
 				}
 
 			} else if (ShopType.isShop(b)) {
-                if (!Setting.findSetting(ShopType.getType((Sign) b.getState()).name() + "SHOP_EXPLODE".toUpperCase()).getBoolean()) {
+                if (!Setting.findSetting(ShopType.getType((Sign) BlockStates.read(b)).name() + "SHOP_EXPLODE".toUpperCase()).getBoolean()) {
 					i.remove();
 
 					if (plugin.getVersion().isBelow(1, 14)) {
-						org.bukkit.material.Sign s = (org.bukkit.material.Sign) b.getState().getData();
+						org.bukkit.material.Sign s = (org.bukkit.material.Sign) BlockStates.read(b).getData();
 						toRemove.add(b.getRelative(s.getAttachedFace()));
 					} else if (b.getType().toString().contains("WALL_SIGN")) {
 						BlockData data = b.getBlockData();
@@ -129,10 +123,12 @@ public class ShopProtectionListener extends Utils implements Listener {
 						toRemove.add(b.getRelative(BlockFace.DOWN));
 					}
 				} else {
-					Shop shop = Shop.loadShop((Sign) b.getState());
-					if (shop != null) {
+					Shop shop = Shop.loadShop((Sign) BlockStates.read(b));
+					if (shop == null && isPending(b)) {
+						i.remove();
+					} else if (shop != null) {
 
-						if (shop.getStorage() != null)
+						if (shop.hasStorage())
 							shop.getChestAsSC().resetName();
 
 						shop.remove();
@@ -149,10 +145,15 @@ public class ShopProtectionListener extends Utils implements Listener {
         Player player = event.getPlayer();
         Block block = event.getBlock();
 
+        if (!plugin.getShopIndex().mayBeShop(block))
+            return;
+
         if (ShopType.isShop(block)) {
-            Shop shop = Shop.loadShop((Sign) block.getState());
-            if (shop == null)
+            Shop shop = Shop.loadShop((Sign) BlockStates.read(block));
+            if (shop == null) {
+                event.setCancelled(isPending(block));
                 return;
+            }
 
             if (player.hasPermission(Permissions.ADMIN.getPerm()) || player.getUniqueId().equals(shop.getOwner().getUUID())) {
 	
@@ -163,8 +164,8 @@ public class ShopProtectionListener extends Utils implements Listener {
 		            return;
 	            }
 	            
-                if (shop.getStorage() != null) {
-                    new ShopChest(shop.getStorage().getLocation()).resetName();
+                if (shop.hasStorage()) {
+                    new ShopChest(shop.getInventoryLocation()).resetName();
                 }
 
                 shop.remove();
@@ -174,8 +175,7 @@ public class ShopProtectionListener extends Utils implements Listener {
             player.sendMessage(Message.NO_TS_DESTROY.getPrefixed());
 
         } else if (plugin.getListManager().isInventory(block)) {
-            BlockState bs = block.getState();
-            if (!ShopChest.isShopChest(bs.getBlock()))
+            if (!ShopChest.isShopChest(block))
                 return;
 
             if (player.hasPermission(Permissions.ADMIN.getPerm())) {
@@ -195,6 +195,10 @@ public class ShopProtectionListener extends Utils implements Listener {
             }
 
             Shop shop = Shop.loadShop(s);
+            if (shop == null) {
+                event.setCancelled(isPending(s.getBlock()));
+                return;
+            }
 
             if (event.getPlayer().getUniqueId().equals(shop.getOwner().getUUID())) {
 	            PlayerShopDestroyEvent destroyEvent = new PlayerShopDestroyEvent(player, shop);
@@ -206,16 +210,12 @@ public class ShopProtectionListener extends Utils implements Listener {
 	            
                 if (!ShopChest.isDoubleChest(block)) {
                     new ShopChest(shop.getInventoryLocation()).resetName();
-                    shop.removeStorage();
-                    shop.updateStatus();
-                    shop.saveShop();
+                    shop.edit(edited -> {
+                        edited.removeStorage();
+                        edited.updateStatus();
+                    });
                 } else {
-                    if (bs instanceof Nameable && ((Nameable) bs).getCustomName() != null
-                            && ((Nameable) bs).getCustomName().contains("$ ^Sign:l_")) {
-                        ((Nameable) bs).setCustomName(((Nameable) bs).getCustomName().split("\\$ \\^")[0]);
-
-                        bs.update();
-                    }
+                    ShopChest.untag(block);
                 }
                 return;
             }
@@ -229,7 +229,7 @@ public class ShopProtectionListener extends Utils implements Listener {
     public void onChestOpen(PlayerInteractEvent e) {
         Block block = e.getClickedBlock();
 
-        if (e.getAction() != Action.RIGHT_CLICK_BLOCK) {
+        if (e.getAction() != Action.RIGHT_CLICK_BLOCK || !plugin.getShopIndex().mayBeShop(block)) {
             return;
 
         } else if (!plugin.getListManager().isInventory(block)) {
@@ -244,6 +244,12 @@ public class ShopProtectionListener extends Utils implements Listener {
         
         if (ShopType.isShop(s.getBlock())) {
             Shop shop = Shop.loadShop(s);
+            if (shop == null) {
+                if (isPending(s.getBlock()))
+                    e.setCancelled(true);
+                return;
+            }
+
             if (!e.getPlayer().hasPermission(Permissions.ADMIN.getPerm()) && !shop.getUsersUUID().contains(e.getPlayer().getUniqueId())) {
                 e.getPlayer().sendMessage(Message.NO_TS_OPEN.getPrefixed());
                 e.setCancelled(true);
@@ -263,7 +269,7 @@ public class ShopProtectionListener extends Utils implements Listener {
     public void onBlockPlace(BlockPlaceEvent event) {
         Block block = event.getBlock();
 
-        if (!plugin.getListManager().isInventory(block))
+        if (!plugin.getShopIndex().mayBeShop(block) || !plugin.getListManager().isInventory(block))
             return;
 
         if (!ShopChest.isDoubleChest(block)) {
@@ -300,5 +306,12 @@ public class ShopProtectionListener extends Utils implements Listener {
         }
         return;
     }
+
+    /**
+     * Returns true while the shop data around the sign is still being read, the shop is protected until it is known
+     */
+    private boolean isPending(Block sign) {
+        return !plugin.getShopRegistry().isLoaded(new ShopLocation(sign.getLocation()));
+    }
 }
 
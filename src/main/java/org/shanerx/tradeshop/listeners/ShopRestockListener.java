@@ -25,29 +25,130 @@
 
 package org.shanerx.tradeshop.listeners;
 
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
+import org.bukkit.event.inventory.InventoryClickEvent;
 import org.bukkit.event.inventory.InventoryCloseEvent;
+import org.bukkit.event.inventory.InventoryDragEvent;
+import org.bukkit.event.inventory.InventoryMoveItemEvent;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
 import org.shanerx.tradeshop.TradeShop;
-import org.shanerx.tradeshop.objects.ShopChest;
+import org.shanerx.tradeshop.framework.events.HopperShopAccessEvent;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.objects.Shop;
 import org.shanerx.tradeshop.utils.Utils;
 
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.WeakHashMap;
+
 public class ShopRestockListener extends Utils implements Listener {
 
     private TradeShop plugin;
+    private final Set<Shop> changed = Collections.newSetFromMap(new WeakHashMap<>());
+    private final Set<Shop> pendingChecks = new HashSet<>();
 
     public ShopRestockListener(TradeShop instance) {
         plugin = instance;
     }
 
-    //If it is a shopchest, this updates the sign when the inventory is closed
+    //If it is a shopchest and its contents were changed, this updates the sign when the inventory is closed
     @EventHandler(priority = EventPriority.HIGH)
     public void onInventoryClose(InventoryCloseEvent event) {
-        if (event.getInventory().getLocation().getBlock() != null && ShopChest.isShopChest(event.getInventory().getLocation().getBlock())) {
-            new ShopChest(event.getInventory().getLocation()).getShop().updateStatus();
+        Shop shop = findShop(event.getInventory());
+
+        if (shop != null && changed.remove(shop)) {
+            shop.updateStatus();
         }
+    }
 
+    //Clicks and drags can move items in ways that are not known before they happen, the stock is counted again on next use
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryClick(InventoryClickEvent event) {
+        Shop shop = findShop(event.getView().getTopInventory());
+
+        if (shop != null) {
+            shop.getStockCounter().invalidate();
+            changed.add(shop);
+        }
     }
-}
 
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryDrag(InventoryDragEvent event) {
+        Shop shop = findShop(event.getView().getTopInventory());
+
+        if (shop != null) {
+            shop.getStockCounter().invalidate();
+            changed.add(shop);
+        }
+    }
+
+    //Hopper moves are applied to the stock counters as they happen, the storage is only counted again when a counter is stale
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onInventoryMoveItem(InventoryMoveItemEvent event) {
+        // Fired by ShopProtectionListener to ask for access, not a move of its own
+        if (event instanceof HopperShopAccessEvent)
+            return;
+
+        Shop source = findShop(event.getSource()), destination = findShop(event.getDestination());
+
+        if (source == null && destination == null)
+            return;
+
+        // The move is undone after this event if the destination has no room for the item
+        ItemStack item = event.getItem();
+        if (!fits(event.getDestination(), item))
+            return;
+
+        if (source != null) {
+            source.getStockCounter().remove(item);
+            scheduleCheck(source);
+        }
+
+        if (destination != null) {
+            destination.getStockCounter().add(item);
+            scheduleCheck(destination);
+        }
+    }
+
+    private void scheduleCheck(Shop shop) {
+        // Hoppers move many items per tick, the status is only checked once per shop and tick after the move has happened
+        if (pendingChecks.add(shop)) {
+            Bukkit.getScheduler().runTask(plugin, () -> {
+                pendingChecks.remove(shop);
+                checkStatus(shop);
+            });
+        }
+    }
+
+    private boolean fits(Inventory inventory, ItemStack item) {
+        for (int i = 0; i < inventory.getSize(); i++) {
+            ItemStack slot = inventory.getItem(i);
+
+            if (slot == null || slot.getType() == Material.AIR)
+                return true;
+
+            if (slot.isSimilar(item) && slot.getAmount() + item.getAmount() <= slot.getMaxStackSize())
+                return true;
+        }
+
+        return false;
+    }
+
+    private void checkStatus(Shop shop) {
+        ShopStatus status = shop.getStatus();
+
+        if ((status == ShopStatus.OPEN || status == ShopStatus.OUT_OF_STOCK) && shop.hasStock() != (status == ShopStatus.OPEN)) {
+            shop.updateStatus();
+        }
+    }
+
+    private Shop findShop(Inventory inventory) {
+        return inventory == null ? null : plugin.getStorageCache().get(inventory.getLocation()).getShop();
+    }
+}
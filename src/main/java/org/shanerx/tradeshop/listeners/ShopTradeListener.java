@@ -26,12 +26,9 @@
 package org.shanerx.tradeshop.listeners;
 
 import org.bukkit.Bukkit;
-import org.bukkit.block.BlockState;
-import org.bukkit.block.Sign;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
 import org.bukkit.event.Listener;
-import org.bukkit.event.block.Action;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
@@ -40,62 +37,32 @@ import org.shanerx.tradeshop.enumys.Setting;
 import org.shanerx.tradeshop.enumys.ShopType;
 import org.shanerx.tradeshop.framework.events.PlayerTradeEvent;
 import org.shanerx.tradeshop.framework.events.SuccessfulTradeEvent;
+import org.shanerx.tradeshop.objects.PlayerSettings;
 import org.shanerx.tradeshop.objects.Shop;
 import org.shanerx.tradeshop.objects.ShopLocation;
-import org.shanerx.tradeshop.utils.JsonConfiguration;
 import org.shanerx.tradeshop.utils.Utils;
-
-import java.util.ArrayList;
-import java.util.Map;
+import org.shanerx.tradeshop.utils.trade.TradePlan;
+import org.shanerx.tradeshop.utils.trade.TradePlanner;
 
 @SuppressWarnings("unused")
 public class ShopTradeListener extends Utils implements Listener {
 
-    @SuppressWarnings("deprecation")
+    /**
+     * Trades run in stages: the shop is resolved once, the trade is quoted and planned against
+     * both inventories, and the same plan is passed to {@link PlayerTradeEvent} and then applied.
+     */
     @EventHandler
     public void onBlockInteract(PlayerInteractEvent e) {
-
         Player buyer = e.getPlayer();
-        Shop shop;
-        Sign s;
-        BlockState chestState;
-
-        if (ShopType.isShop(e.getClickedBlock())) {
-            s = (Sign) e.getClickedBlock().getState();
-        } else {
-            return;
-        }
-
-        JsonConfiguration json = new JsonConfiguration(s.getChunk());
-        shop = json.loadShop(new ShopLocation(s.getLocation()));
+        Shop shop = resolveShop(e);
 
         if (shop == null)
             return;
 
-        if (!shop.getShopType().equals(ShopType.ITRADE) && shop.getUsersUUID().contains(buyer.getUniqueId())) {
-            buyer.sendMessage(Message.SELF_OWNED.getPrefixed());
-            return;
-        }
-
-        if (!shop.isTradeable()) {
-            buyer.sendMessage(Message.SHOP_CLOSED.getPrefixed());
-            return;
-        }
-
-        chestState = shop.getStorage();
-        if (!shop.getShopType().equals(ShopType.ITRADE) && chestState == null) {
-            buyer.sendMessage(Message.MISSING_CHEST.getPrefixed());
-            shop.updateStatus();
-            return;
-        }
-
-        if (!(shop.areProductsValid() && shop.areCostsValid())) {
-            buyer.sendMessage(Message.ILLEGAL_ITEM.getPrefixed());
-            return;
-        }
-
         String productName = "", costName = "";
-        int amountCost = 0, amountProduct = 0, multiplier = 1;
+        int amountCost = 0, amountProduct = 0;
+        boolean max = false;
+        int multiplier = 1;
 
         for (ItemStack item : shop.getCost()) { //Shop cost list
             //If item has custom name set to tempName, else set material name
@@ -112,143 +79,115 @@ public class ShopTradeListener extends Utils implements Listener {
         }
 
         if (buyer.isSneaking() && Setting.ALLOW_MULTI_TRADE.getBoolean()) {
-            JsonConfiguration pJson = new JsonConfiguration(buyer.getUniqueId());
-            Map<String, Integer> data = pJson.loadPlayer();
-            multiplier = data.get("multi");
-
+            PlayerSettings settings = plugin.getPlayerSettings().get(buyer.getUniqueId());
+            max = settings.isMaxMulti();
+            multiplier = settings.getMulti();
         }
 
-        PlayerTradeEvent event = new PlayerTradeEvent(e.getPlayer(), shop.getCost(), shop.getProduct(), shop, e.getClickedBlock(), e.getBlockFace());
-        Bukkit.getPluginManager().callEvent(event);
-        if (event.isCancelled()) return;
-
-        e.setCancelled(true);
-        shop = json.loadShop(new ShopLocation(s.getLocation()));
+        Inventory shopInventory = shop.getShopType().isITrade() ? null : shop.getChestAsSC().getInventory();
+        TradePlan plan = max ? TradePlanner.planMax(shop, buyer.getInventory(), shopInventory, e.getAction())
+                : TradePlanner.plan(shop, buyer.getInventory(), shopInventory, multiplier, e.getAction());
 
-        switch (canExchangeAll(shop, buyer.getInventory(), multiplier, e.getAction())) {
-            case SHOP_NO_PRODUCT:
-                buyer.sendMessage(Message.SHOP_EMPTY.getPrefixed()
-                        .replace("{ITEM}", costName.toLowerCase()).replace("{AMOUNT}", String.valueOf(amountCost)));
-                return;
-            case PLAYER_NO_COST:
-                buyer.sendMessage(Message.INSUFFICIENT_ITEMS.getPrefixed()
-                        .replace("{ITEM}", costName.toLowerCase()).replace("{AMOUNT}", String.valueOf(amountCost)));
-                return;
-            case SHOP_NO_SPACE:
-                buyer.sendMessage(Message.SHOP_FULL.getPrefixed()
-                        .replace("{ITEM}", costName.toLowerCase()).replace("{AMOUNT}", String.valueOf(amountCost)));
+        try {
+            if (!plan.isSuccessful()) {
+                e.setCancelled(true);
+                sendFailure(buyer, shop, plan, costName, amountCost);
                 return;
-            case PLAYER_NO_SPACE:
-                buyer.sendMessage(Message.PLAYER_FULL.getPrefixed()
-                        .replace("{ITEM}", costName.toLowerCase()).replace("{AMOUNT}", String.valueOf(amountCost)));
+            }
+
+            PlayerTradeEvent event = new PlayerTradeEvent(buyer, shop.getCost(), shop.getProduct(), shop, e.getClickedBlock(), e.getBlockFace(), plan);
+            Bukkit.getPluginManager().callEvent(event);
+            if (event.isCancelled()) return;
+
+            e.setCancelled(true);
+
+            // Listeners must not change the inventories, the plan is not applied over their changes
+            if (!plan.isCurrent(buyer.getInventory(), shopInventory))
                 return;
-        }
 
-        if (tradeAllItems(shop, multiplier, e.getAction(), buyer)) {
+            plan.apply(buyer.getInventory(), shopInventory);
+
+            if (!shop.getShopType().isITrade()) {
+                shop.getStockCounter().apply(plan);
+
+                if (!shop.hasStock())
+                    shop.updateStatus();
+            }
+
             buyer.sendMessage(Message.ON_TRADE.getPrefixed()
-                    .replace("{AMOUNT1}", String.valueOf(amountProduct))
-                    .replace("{AMOUNT2}", String.valueOf(amountCost))
+                    .replace("{AMOUNT1}", String.valueOf(amountProduct * plan.getMultiplier()))
+                    .replace("{AMOUNT2}", String.valueOf(amountCost * plan.getMultiplier()))
                     .replace("{ITEM1}", productName.toLowerCase())
                     .replace("{ITEM2}", costName.toLowerCase())
                     .replace("{SELLER}", shop.getShopType().isITrade() ? Setting.ITRADESHOP_OWNER.getString() : shop.getOwner().getPlayer().getName()));
 
-            Bukkit.getPluginManager().callEvent(new SuccessfulTradeEvent(e.getPlayer(), shop.getCost(), shop.getProduct(), shop, e.getClickedBlock(), e.getBlockFace()));
+            Bukkit.getPluginManager().callEvent(new SuccessfulTradeEvent(buyer, shop.getCost(), shop.getProduct(), shop, e.getClickedBlock(), e.getBlockFace()));
+        } finally {
+            // The inventory plans go back to their pool, listeners must not keep the plan
+            plan.release();
         }
     }
 
-    private boolean tradeAllItems(Shop shop, int multiplier, Action action, Player buyer) {
-        ArrayList<ItemStack> costItems = new ArrayList<>(), productItems = new ArrayList<>();
-        Inventory shopInventory = shop.getChestAsSC().getInventory();
-        Inventory playerInventory = buyer.getInventory();
-
-        if (shop.getShopType() == ShopType.ITRADE) { //ITrade trade
-
-            //Method to find Cost items in player inventory and add to cost array
-            costItems = getItems(playerInventory, shop.getCost(), multiplier);
-            if (costItems.get(0) == null) {
-                ItemStack item = costItems.get(1);
-                buyer.sendMessage(Message.INSUFFICIENT_ITEMS.getPrefixed()
-                        .replace("{ITEM}", item.hasItemMeta() && item.getItemMeta().hasDisplayName() ? item.getItemMeta().getDisplayName() : item.getType().toString())
-                        .replace("{AMOUNT}", String.valueOf(item.getAmount())));
-                return false;
-            }
-
-            for (ItemStack item : costItems) {
-                playerInventory.removeItem(item);
-            }
-
-            for (ItemStack item : shop.getProduct()) {
-                playerInventory.addItem(item);
-            }
+    /**
+     * Returns the shop that was clicked if the player may trade with it, otherwise tells the player why not
+     */
+    private Shop resolveShop(PlayerInteractEvent e) {
+        Player buyer = e.getPlayer();
 
-            return true; //Successfully completed trade
-        } else if (shop.getShopType() == ShopType.BITRADE && action == Action.LEFT_CLICK_BLOCK) { //BiTrade Reversed Trade
-
-            //Method to find Cost items in player inventory and add to cost array
-            costItems = getItems(playerInventory, shop.getProduct(), multiplier); //Reverse BiTrade, Product is Cost
-            if (costItems.get(0) == null) {
-                ItemStack item = costItems.get(1);
-                buyer.sendMessage(Message.INSUFFICIENT_ITEMS.getPrefixed()
-                        .replace("{ITEM}", item.hasItemMeta() && item.getItemMeta().hasDisplayName() ? item.getItemMeta().getDisplayName() : item.getType().toString())
-                        .replace("{AMOUNT}", String.valueOf(item.getAmount())));
-                return false;
-            }
+        if (!plugin.getShopIndex().mayBeShop(e.getClickedBlock()) || !ShopType.isShop(e.getClickedBlock()))
+            return null;
 
-            //Method to find Product items in shop inventory and add to product array
-            productItems = getItems(shopInventory, shop.getCost(), multiplier); //Reverse BiTrade, Cost is Product
-            if (productItems.get(0) == null) {
-                ItemStack item = productItems.get(1);
-                shop.updateStatus();
-                buyer.sendMessage(Message.SHOP_INSUFFICIENT_ITEMS.getPrefixed()
-                        .replace("{ITEM}", item.hasItemMeta() && item.getItemMeta().hasDisplayName() ? item.getItemMeta().getDisplayName() : item.getType().toString())
-                        .replace("{AMOUNT}", String.valueOf(item.getAmount())));
-                return false;
-            }
-        } else { // Normal Trade
-
-            //Method to find Cost items in player inventory and add to cost array
-            costItems = getItems(playerInventory, shop.getCost(), multiplier);
-            if (costItems.get(0) == null) {
-                ItemStack item = costItems.get(1);
-                buyer.sendMessage(Message.INSUFFICIENT_ITEMS.getPrefixed()
-                        .replace("{ITEM}", item.hasItemMeta() && item.getItemMeta().hasDisplayName() ? item.getItemMeta().getDisplayName() : item.getType().toString())
-                        .replace("{AMOUNT}", String.valueOf(item.getAmount())));
-                return false;
-            }
+        Shop shop = Shop.loadShop(new ShopLocation(e.getClickedBlock().getLocation()));
 
-            //Method to find Product items in shop inventory and add to product array
-            productItems = getItems(shopInventory, shop.getProduct(), multiplier);
-            if (productItems.get(0) == null) {
-                ItemStack item = productItems.get(1);
-                shop.updateStatus();
-                buyer.sendMessage(Message.SHOP_INSUFFICIENT_ITEMS.getPrefixed()
-                        .replace("{ITEM}", item.hasItemMeta() && item.getItemMeta().hasDisplayName() ? item.getItemMeta().getDisplayName() : item.getType().toString())
-                        .replace("{AMOUNT}", String.valueOf(item.getAmount())));
-                return false;
-            }
+        if (shop == null)
+            return null;
 
+        if (!shop.getShopType().equals(ShopType.ITRADE) && shop.getUsersUUID().contains(buyer.getUniqueId())) {
+            buyer.sendMessage(Message.SELF_OWNED.getPrefixed());
+            return null;
         }
 
-        //For loop to remove cost items from player inventory
-        for (ItemStack item : costItems) {
-            playerInventory.removeItem(item);
+        if (!shop.isTradeable()) {
+            buyer.sendMessage(Message.SHOP_CLOSED.getPrefixed());
+            return null;
         }
 
-        //For loop to remove product items from shop inventory
-        for (ItemStack item : productItems) {
-            shopInventory.removeItem(item);
+        if (!shop.getShopType().equals(ShopType.ITRADE) && !shop.hasStorage()) {
+            buyer.sendMessage(Message.MISSING_CHEST.getPrefixed());
+            shop.updateStatus();
+            return null;
         }
 
-        //For loop to put cost items in shop inventory
-        for (ItemStack item : costItems) {
-            shopInventory.addItem(item);
+        if (!(shop.areProductsValid() && shop.areCostsValid())) {
+            buyer.sendMessage(Message.ILLEGAL_ITEM.getPrefixed());
+            return null;
         }
 
-        //For loop to put product items in player inventory
-        for (ItemStack item : productItems) {
-            playerInventory.addItem(item);
+        return shop;
+    }
+
+    private void sendFailure(Player buyer, Shop shop, TradePlan plan, String costName, int amountCost) {
+        Message message;
+
+        switch (plan.getStatus()) {
+            case SHOP_NO_PRODUCT:
+                shop.updateStatus();
+                message = Message.SHOP_EMPTY;
+                break;
+            case PLAYER_NO_COST:
+                message = Message.INSUFFICIENT_ITEMS;
+                break;
+            case SHOP_NO_SPACE:
+                message = Message.SHOP_FULL;
+                break;
+            case PLAYER_NO_SPACE:
+                message = Message.PLAYER_FULL;
+                break;
+            default:
+                return;
         }
 
-        return true; //Successfully completed trade
+        buyer.sendMessage(message.getPrefixed()
+                .replace("{ITEM}", costName.toLowerCase()).replace("{AMOUNT}", String.valueOf(amountCost)));
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,210 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.objects;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+import org.shanerx.tradeshop.TradeShop;
+import org.shanerx.tradeshop.utils.ItemSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.logging.Level;
+
+/**
+ * A single product or cost of a shop, stored as the item with an amount of one and the total amount traded.
+ * <p>
+ * The total amount may be larger than a stack, it is only split into stacks when the items are put into an
+ * inventory. Shops selling the same item share the stored template no matter how much they sell.
+ * </p>
+ */
+public class ItemLine {
+
+	private transient static TradeShop plugin = (TradeShop) Bukkit.getPluginManager().getPlugin("TradeShop");
+	private final String item;
+	private final int amount;
+	private Material type;
+
+	/**
+	 * Creates a line from stored values
+	 *
+	 * @param item   Base64 string of the item with an amount of one
+	 * @param amount total amount of the line
+	 * @param type   material of the item, null if unknown
+	 */
+	public ItemLine(String item, int amount, Material type) {
+		this.item = item;
+		this.amount = amount;
+		this.type = type;
+	}
+
+	/**
+	 * Creates the line for an item, the amount of the stack becomes the amount of the line
+	 *
+	 * @param stack item and amount of the line
+	 * @return the new line
+	 */
+	public static ItemLine of(ItemStack stack) {
+		ItemStack template = stack.clone();
+		template.setAmount(1);
+
+		return new ItemLine(ItemSerializer.itemStackArrayToBase64(template), stack.getAmount(), stack.getType());
+	}
+
+	/**
+	 * Converts items stored one stack per entry by older versions, equal items are merged into one line
+	 *
+	 * @param itemsB64 Base64 strings of the stacks
+	 * @return lines of the items in the order they first appear, null if any item could not be decoded
+	 */
+	public static List<ItemLine> fromLegacy(List<String> itemsB64) {
+		List<ItemStack> merged = decodeLegacy(itemsB64, false);
+		if (merged == null)
+			return null;
+
+		List<ItemLine> lines = new ArrayList<>();
+		for (ItemStack stack : merged) {
+			lines.add(of(stack));
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Decodes items stored one stack per entry by older versions, equal items are merged into one stack
+	 *
+	 * @param itemsB64 Base64 strings of the stacks
+	 * @return stacks of the items that could be decoded in the order they first appear
+	 */
+	public static List<ItemStack> decodeLegacy(List<String> itemsB64) {
+		return decodeLegacy(itemsB64, true);
+	}
+
+	private static List<ItemStack> decodeLegacy(List<String> itemsB64, boolean skipFailed) {
+		List<ItemStack> merged = new ArrayList<>();
+
+		for (String B64 : itemsB64) {
+			if (B64.length() == 0)
+				continue;
+
+			try {
+				ItemStack stack = plugin.getItemCache().decode(B64);
+				ItemStack same = null;
+
+				for (ItemStack line : merged) {
+					if (line.isSimilar(stack)) {
+						same = line;
+						break;
+					}
+				}
+
+				if (same != null)
+					same.setAmount(same.getAmount() + stack.getAmount());
+				else
+					merged.add(stack);
+			} catch (IOException ex) {
+				plugin.getLogger().log(Level.WARNING, "Could not decode a shop item stored by an older version!", ex);
+				if (!skipFailed)
+					return null;
+			}
+		}
+
+		return merged;
+	}
+
+	/**
+	 * Returns the Base64 string of the item with an amount of one
+	 *
+	 * @return serialized template of the item
+	 */
+	public String getItem() {
+		return item;
+	}
+
+	public int getAmount() {
+		return amount;
+	}
+
+	/**
+	 * Returns the material of the item without decoding it, lines stored without the material decode the item once
+	 *
+	 * @return material of the item, null if the item could not be decoded
+	 */
+	public Material getType() {
+		if (type == null) {
+			try {
+				type = plugin.getItemCache().decode(item).getType();
+			} catch (IOException ex) {
+				return null;
+			}
+		}
+
+		return type;
+	}
+
+	/**
+	 * Returns a copy of this line with another amount
+	 *
+	 * @param amount amount of the new line
+	 * @return the new line
+	 */
+	public ItemLine withAmount(int amount) {
+		return new ItemLine(item, amount, type);
+	}
+
+	/**
+	 * Returns this line with the item written in the compact format if it was stored with Java serialization
+	 *
+	 * @return the converted line, this line if it is already compact or can not be converted
+	 */
+	public ItemLine toCompact() {
+		if (!ItemSerializer.isLegacy(item))
+			return this;
+
+		try {
+			String data = ItemSerializer.itemStackArrayToBase64(plugin.getItemCache().decode(item));
+
+			return ItemSerializer.isLegacy(data) ? this : new ItemLine(data, amount, type);
+		} catch (IOException | IllegalArgumentException | IllegalStateException ex) {
+			return this;
+		}
+	}
+
+	/**
+	 * Decodes the item of this line
+	 *
+	 * @return a new stack of the item with the total amount of the line
+	 * @throws IOException if the item could not be decoded
+	 */
+	public ItemStack toItemStack() throws IOException {
+		ItemStack stack = plugin.getItemCache().decode(item);
+		stack.setAmount(amount);
+
+		return stack;
+	}
+}
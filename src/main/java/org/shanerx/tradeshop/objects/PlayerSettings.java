@@ -0,0 +1,114 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.objects;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Settings of a single player, kept in memory while the player is online.
+ */
+public class PlayerSettings {
+
+	public static final int DEFAULT_MULTI = 2;
+	/**
+	 * Multiplier value that trades as many times as both inventories allow
+	 */
+	public static final int MAX_MULTI = 0;
+
+	private final UUID uuid;
+	private final Map<String, Integer> data;
+	private boolean dirty;
+
+	/**
+	 * Creates the settings from the stored data of the player
+	 *
+	 * @param uuid UUID of the player
+	 * @param data stored data, may be null if nothing is stored
+	 */
+	public PlayerSettings(UUID uuid, Map<String, Integer> data) {
+		this.uuid = uuid;
+		this.data = data == null ? new HashMap<>() : new HashMap<>(data);
+
+		// Defaults are not changes, settings are only written once the player changes them
+		this.data.putIfAbsent("type", 0);
+
+		// The multiplier only lasts for the current login
+		this.data.put("multi", DEFAULT_MULTI);
+	}
+
+	public UUID getUuid() {
+		return uuid;
+	}
+
+	public int getType() {
+		return data.get("type");
+	}
+
+	public void setType(int type) {
+		set("type", type);
+	}
+
+	public int getMulti() {
+		return data.get("multi");
+	}
+
+	public void setMulti(int multi) {
+		set("multi", multi);
+	}
+
+	public boolean isMaxMulti() {
+		return getMulti() == MAX_MULTI;
+	}
+
+	/**
+	 * Returns true if the settings changed since they were last saved
+	 *
+	 * @return true if the settings need to be saved
+	 */
+	public boolean isDirty() {
+		return dirty;
+	}
+
+	/**
+	 * Returns a copy of the settings to be stored and marks them as saved
+	 *
+	 * @return the settings as stored by {@link org.shanerx.tradeshop.utils.data.ShopDataStore#savePlayer}
+	 */
+	public Map<String, Integer> snapshot() {
+		dirty = false;
+		return new HashMap<>(data);
+	}
+
+	private void set(String key, int value) {
+		Integer old = data.put(key, value);
+
+		if (old == null || old != value)
+			dirty = true;
+	}
+}
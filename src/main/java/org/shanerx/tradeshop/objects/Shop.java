@@ -25,9 +25,10 @@
 
 package org.shanerx.tradeshop.objects;
 
-import com.google.gson.Gson;
+import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
+import org.bukkit.Material;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockState;
 import org.bukkit.block.Container;
@@ -35,32 +36,45 @@ import org.bukkit.block.Sign;
 import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
+import org.shanerx.tradeshop.TradeShop;
 import org.shanerx.tradeshop.enumys.ShopRole;
 import org.shanerx.tradeshop.enumys.ShopStatus;
 import org.shanerx.tradeshop.enumys.ShopType;
-import org.shanerx.tradeshop.utils.ItemSerializer;
-import org.shanerx.tradeshop.utils.JsonConfiguration;
 import org.shanerx.tradeshop.utils.Tuple;
+import org.shanerx.tradeshop.utils.BlockStates;
 import org.shanerx.tradeshop.utils.Utils;
+import org.shanerx.tradeshop.utils.trade.ItemKey;
+import org.shanerx.tradeshop.utils.trade.StockCounter;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
 
 import java.io.IOException;
 import java.io.Serializable;
 import java.util.*;
+import java.util.function.Consumer;
+import java.util.logging.Level;
 import java.util.stream.Collectors;
 
 @SuppressWarnings("unused")
 public class Shop implements Serializable {
 
+	private transient static TradeShop plugin = (TradeShop) Bukkit.getPluginManager().getPlugin("TradeShop");
 	private ShopUser owner;
 	private List<UUID> managers, members;
 	private ShopType shopType;
 	private ShopLocation shopLoc, chestLoc;
 	private transient List<ItemStack> product, cost;
+	private transient List<ItemKey> productKeys, costKeys;
+	private transient StockCounter stockCounter;
 	private transient SignChangeEvent signChangeEvent;
 	private transient Inventory storageInv;
 	private transient Utils utils;
+	private List<ItemLine> productLines, costLines;
 	private List<String> productListB64, costListB64;
     private ShopStatus status = ShopStatus.INCOMPLETE;
+	private transient int editDepth;
+	private transient boolean pendingSave;
+	private transient boolean productPartial, costPartial;
+	private transient String[] signLines;
 
 	/**
 	 * Creates a Shop object
@@ -79,21 +93,11 @@ public class Shop implements Serializable {
 		managers = players.getLeft();
 		members = players.getRight();
 
-		product = new ArrayList<>();
-		cost = new ArrayList<>();
-		productListB64 = new ArrayList<>();
-		costListB64 = new ArrayList<>();
+		productLines = new ArrayList<>();
+		costLines = new ArrayList<>();
 
-		product.add(items.getLeft());
-		cost.add(items.getRight());
-
-		for (ItemStack iS : product) {
-			productListB64.add(ItemSerializer.itemStackArrayToBase64(iS));
-		}
-
-		for (ItemStack iS : cost) {
-			costListB64.add(ItemSerializer.itemStackArrayToBase64(iS));
-		}
+		productLines.add(ItemLine.of(items.getLeft()));
+		costLines.add(ItemLine.of(items.getRight()));
 
 		fixAfterLoad();
 	}
@@ -113,10 +117,8 @@ public class Shop implements Serializable {
 		managers = Collections.emptyList();
 		members = Collections.emptyList();
 
-		productListB64 = new ArrayList<>();
-		costListB64 = new ArrayList<>();
-		product = new ArrayList<>();
-		cost = new ArrayList<>();
+		productLines = new ArrayList<>();
+		costLines = new ArrayList<>();
 
 		fixAfterLoad();
 	}
@@ -135,14 +137,42 @@ public class Shop implements Serializable {
 		managers = Collections.emptyList();
 		members = Collections.emptyList();
 
-		productListB64 = new ArrayList<>();
-		costListB64 = new ArrayList<>();
-		product = new ArrayList<>();
-		cost = new ArrayList<>();
+		productLines = new ArrayList<>();
+		costLines = new ArrayList<>();
 
 		fixAfterLoad();
 	}
 
+	/**
+	 * Creates a Shop object from stored data, {@link #fixAfterLoad()} has to be called before the shop is used
+	 *
+	 * @param owner          Owner of the shop as a ShopUser
+	 * @param shopType       Type of the shop as ShopType
+	 * @param shopLoc        Location of the shop sign
+	 * @param chestLoc       Location of the shop inventory, null if the shop has none
+	 * @param managers       UUIDs of the managers
+	 * @param members        UUIDs of the members
+	 * @param productLines   Product items, null if the shop was stored by an older version
+	 * @param costLines      Cost items, null if the shop was stored by an older version
+	 * @param productListB64 Product items as Base64 stacks from older versions, only used if productLines is null
+	 * @param costListB64    Cost items as Base64 stacks from older versions, only used if costLines is null
+	 * @param status         Status of the shop
+	 */
+	public Shop(ShopUser owner, ShopType shopType, ShopLocation shopLoc, ShopLocation chestLoc, List<UUID> managers, List<UUID> members,
+				List<ItemLine> productLines, List<ItemLine> costLines, List<String> productListB64, List<String> costListB64, ShopStatus status) {
+		this.owner = owner;
+		this.shopType = shopType;
+		this.shopLoc = shopLoc;
+		this.chestLoc = chestLoc;
+		this.managers = managers;
+		this.members = members;
+		this.productLines = productLines;
+		this.costLines = costLines;
+		this.productListB64 = productLines == null ? productListB64 : null;
+		this.costListB64 = costLines == null ? costListB64 : null;
+		this.status = status;
+	}
+
 	/**
 	 * Deserializes the object to Json using Gson
 	 *
@@ -151,7 +181,7 @@ public class Shop implements Serializable {
 	 * @return Shop object from file
 	 */
 	public static Shop deserialize(String serialized) {
-		Shop shop = new Gson().fromJson(serialized, Shop.class);
+		Shop shop = GsonProcessor.getGson().fromJson(serialized, Shop.class);
 		shop.fixAfterLoad();
 
 		return shop;
@@ -164,7 +194,7 @@ public class Shop implements Serializable {
 	 * @return The shop from file
 	 */
 	public static Shop loadShop(ShopLocation loc) {
-		return new JsonConfiguration(loc.getLocation().getChunk()).loadShop(loc);
+		return plugin.getShopRegistry().getShop(loc);
 	}
 
 	/**
@@ -187,10 +217,38 @@ public class Shop implements Serializable {
 		return loadShop(new ShopLocation(s.getLocation()));
 	}
 
+	/**
+	 * Returns the product lines as stored, null while the shop still holds the items of an older version
+	 *
+	 * @return Product ItemLine List
+	 */
+	public List<ItemLine> getProductLines() {
+		return productLines;
+	}
+
+	/**
+	 * Returns the cost lines as stored, null while the shop still holds the items of an older version
+	 *
+	 * @return Cost ItemLine List
+	 */
+	public List<ItemLine> getCostLines() {
+		return costLines;
+	}
+
+	/**
+	 * Returns the product items of an older version that have not been converted to lines yet
+	 *
+	 * @return Base64 stacks, null once the items were converted
+	 */
 	public List<String> getProductListB64() {
 		return productListB64;
 	}
 
+	/**
+	 * Returns the cost items of an older version that have not been converted to lines yet
+	 *
+	 * @return Base64 stacks, null once the items were converted
+	 */
 	public List<String> getCostListB64() {
 		return costListB64;
 	}
@@ -217,8 +275,10 @@ public class Shop implements Serializable {
 	 * Sets the storageInventory
 	 */
 	public void setStorageInventory() {
-		if (getStorage() != null && getStorage() instanceof Container)
-			storageInv = ((Container) getStorage()).getInventory();
+		BlockState storage = getStorage();
+
+		if (storage instanceof Container)
+			storageInv = ((Container) storage).getInventory();
 		else
 			storageInv = null;
 	}
@@ -396,6 +456,8 @@ public class Shop implements Serializable {
 	 * @param newLoc new location to set
 	 */
 	public void setInventoryLocation(Location newLoc) {
+		// The old storage block keeps its cached decision otherwise
+		plugin.getStorageCache().invalidate(chestLoc);
 		chestLoc = new ShopLocation(newLoc);
 	}
 
@@ -432,19 +494,47 @@ public class Shop implements Serializable {
 	 * @return Cost ItemStack List
 	 */
 	public List<ItemStack> getCost() {
+		if (cost == null) {
+			convertLegacyItems();
+			if (costLines != null) {
+				cost = decodeItems(costLines);
+				costPartial = cost.size() != costLines.size();
+			} else {
+				cost = ItemLine.decodeLegacy(costListB64);
+				costPartial = true;
+			}
+		}
+
 		return cost;
 	}
 
+	/**
+	 * Returns the precomputed keys of the cost items
+	 *
+	 * @return Cost ItemKey List in the same order as {@link #getCost()}
+	 */
+	public List<ItemKey> getCostKeys() {
+		if (costKeys == null)
+			costKeys = ItemKey.of(getCost());
+
+		return costKeys;
+	}
+
 	/**
 	 * Sets the cost item
 	 *
 	 * @param newItem ItemStack to be set
 	 */
 	public void setCost(ItemStack newItem) {
-		cost.clear();
-		costListB64.clear();
+		edit(shop -> {
+			cost = new ArrayList<>();
+			costLines = new ArrayList<>();
+			costListB64 = null;
+			costPartial = false;
+			costKeys = null;
 
-		addCost(newItem);
+			addCost(newItem);
+		});
 	}
 
 	/**
@@ -453,26 +543,8 @@ public class Shop implements Serializable {
 	 * @param newItem ItemStack to be added
 	 */
 	public void addCost(ItemStack newItem) {
-		int amount = newItem.getAmount();
-		List<ItemStack> items = new ArrayList<>();
-		while (amount > 0) {
-			if (newItem.getMaxStackSize() < amount) {
-				ItemStack itm = newItem.clone();
-				itm.setAmount(newItem.getMaxStackSize());
-				items.add(itm);
-				amount -= newItem.getMaxStackSize();
-			} else {
-				ItemStack itm = newItem.clone();
-				itm.setAmount(amount);
-				items.add(itm);
-				amount -= amount;
-			}
-		}
-
-		for (ItemStack iS : items) {
-			cost.add(iS);
-			costListB64.add(ItemSerializer.itemStackArrayToBase64(iS));
-		}
+		addItem(getCost(), editableCostLines(), newItem);
+		costKeys = null;
 
 		saveShop();
 		updateSign();
@@ -487,8 +559,10 @@ public class Shop implements Serializable {
 	 */
 	public boolean removeCost(int index) {
 		try {
-			cost.remove(index);
-			costListB64.remove(index);
+			List<ItemLine> lines = editableCostLines();
+			getCost().remove(index);
+			lines.remove(index);
+			costKeys = null;
 
 			saveShop();
 			updateSign();
@@ -498,13 +572,40 @@ public class Shop implements Serializable {
 		}
 	}
 
+	/**
+	 * Returns every material used as cost or product, taken from the stored lines without decoding the items
+	 *
+	 * @return Set of materials in the shop
+	 */
+	public Set<Material> getMaterials() {
+		Set<Material> materials = EnumSet.noneOf(Material.class);
+		addMaterials(materials, productLines, productListB64);
+		addMaterials(materials, costLines, costListB64);
+
+		return materials;
+	}
+
+	private void addMaterials(Set<Material> materials, List<ItemLine> lines, List<String> legacyItems) {
+		if (lines != null) {
+			for (ItemLine line : lines) {
+				if (line.getType() != null)
+					materials.add(line.getType());
+			}
+		} else if (legacyItems != null) {
+			// Decoded without converting so that reading the materials never saves the shop
+			for (ItemStack item : ItemLine.decodeLegacy(legacyItems)) {
+				materials.add(item.getType());
+			}
+		}
+	}
+
 	/**
 	 * Checks if shop has product
 	 *
 	 * @return True if product != null
 	 */
 	public boolean hasProduct() {
-		return product.size() > 0;
+		return productLines != null ? !productLines.isEmpty() : !productListB64.isEmpty();
 	}
 
 	/**
@@ -513,7 +614,7 @@ public class Shop implements Serializable {
 	 * @return True if cost != null
 	 */
 	public boolean hasCost() {
-		return cost.size() > 0;
+		return costLines != null ? !costLines.isEmpty() : !costListB64.isEmpty();
 	}
 
 	/**
@@ -522,26 +623,9 @@ public class Shop implements Serializable {
 	 * @param newItem ItemStack to be added
 	 */
 	public void addProduct(ItemStack newItem) {
-		int amount = newItem.getAmount();
-		List<ItemStack> items = new ArrayList<>();
-		while (amount > 0) {
-			if (newItem.getMaxStackSize() < amount) {
-				ItemStack itm = newItem.clone();
-				itm.setAmount(newItem.getMaxStackSize());
-				items.add(itm);
-				amount -= newItem.getMaxStackSize();
-			} else {
-				ItemStack itm = newItem.clone();
-				itm.setAmount(amount);
-				items.add(itm);
-				amount -= amount;
-			}
-		}
-
-		for (ItemStack iS : items) {
-			product.add(iS);
-			productListB64.add(ItemSerializer.itemStackArrayToBase64(iS));
-		}
+		addItem(getProduct(), editableProductLines(), newItem);
+		productKeys = null;
+		stockCounter = null;
 
 		saveShop();
 		updateSign();
@@ -553,19 +637,48 @@ public class Shop implements Serializable {
 	 * @return Product ItemStack List
 	 */
 	public List<ItemStack> getProduct() {
+		if (product == null) {
+			convertLegacyItems();
+			if (productLines != null) {
+				product = decodeItems(productLines);
+				productPartial = product.size() != productLines.size();
+			} else {
+				product = ItemLine.decodeLegacy(productListB64);
+				productPartial = true;
+			}
+		}
+
 		return product;
 	}
 
+	/**
+	 * Returns the precomputed keys of the product items
+	 *
+	 * @return Product ItemKey List in the same order as {@link #getProduct()}
+	 */
+	public List<ItemKey> getProductKeys() {
+		if (productKeys == null)
+			productKeys = ItemKey.of(getProduct());
+
+		return productKeys;
+	}
+
 	/**
 	 * Sets the product item
 	 *
 	 * @param newItem item to be set to product
 	 */
 	public void setProduct(ItemStack newItem) {
-		product.clear();
-		productListB64.clear();
+		edit(shop -> {
+			product = new ArrayList<>();
+			productLines = new ArrayList<>();
+			productListB64 = null;
+			productPartial = false;
+			productKeys = null;
+			stockCounter = null;
 
-		addProduct(newItem);
+			addProduct(newItem);
+		});
 	}
 
 	/**
@@ -576,9 +689,12 @@ public class Shop implements Serializable {
 	 * @return true if Product is removed
 	 */
 	public boolean removeProduct(int index) {
-		if (product.size() > index) {
-			product.remove(index);
-			productListB64.remove(index);
+		if (getProduct().size() > index) {
+			List<ItemLine> lines = editableProductLines();
+			getProduct().remove(index);
+			lines.remove(index);
+			productKeys = null;
+			stockCounter = null;
 
 			saveShop();
 			updateSign();
@@ -594,43 +710,144 @@ public class Shop implements Serializable {
 	 * @return serialized string
 	 */
 	public String serialize() {
-		return new Gson().toJson(this);
+		return GsonProcessor.getGson().toJson(this);
 	}
 
 	/**
-	 * Converts Base64 String to itemstack values
+	 * Drops the decoded items, they are decoded again the first time they are needed
 	 */
 	public void itemsFromB64() {
-		if (product == null)
-			product = new ArrayList<>();
-		if (productListB64 == null)
-			productListB64 = new ArrayList<>();
-		if (cost == null)
-			cost = new ArrayList<>();
-		if (costListB64 == null)
-			costListB64 = new ArrayList<>();
-
-		product.clear();
-		for (String B64 : productListB64) {
-			if (B64.length() > 0) {
-				try {
-					product.add(ItemSerializer.itemStackArrayFromBase64(B64));
-				} catch (IOException ex) {
-					ex.printStackTrace();
-				}
+		if (productLines == null && (productListB64 == null || productListB64.isEmpty())) {
+			productLines = new ArrayList<>();
+			productListB64 = null;
+		}
+		if (costLines == null && (costListB64 == null || costListB64.isEmpty())) {
+			costLines = new ArrayList<>();
+			costListB64 = null;
+		}
+
+		product = null;
+		cost = null;
+		productKeys = null;
+		costKeys = null;
+		stockCounter = null;
+	}
+
+	/**
+	 * Converts items stored one stack per entry or with Java serialization by older versions to compact
+	 * lines and saves the shop, items that cannot be decoded are left as they are
+	 */
+	private void convertLegacyItems() {
+		boolean converted = compactLines(productLines) | compactLines(costLines);
+
+		if (productListB64 != null && productLines == null) {
+			productLines = ItemLine.fromLegacy(productListB64);
+			if (productLines != null) {
+				productListB64 = null;
+				converted = true;
+			}
+		}
+
+		if (costListB64 != null && costLines == null) {
+			costLines = ItemLine.fromLegacy(costListB64);
+			if (costLines != null) {
+				costListB64 = null;
+				converted = true;
 			}
 		}
 
-		cost.clear();
-		for (String B64 : costListB64) {
-			if (B64.length() > 0) {
-				try {
-					cost.add(ItemSerializer.itemStackArrayFromBase64(B64));
-				} catch (IOException ex) {
-					ex.printStackTrace();
+		if (converted)
+			saveShop();
+	}
+
+	private boolean compactLines(List<ItemLine> lines) {
+		boolean converted = false;
+
+		if (lines != null) {
+			for (int i = 0; i < lines.size(); i++) {
+				ItemLine line = lines.get(i).toCompact();
+
+				if (line != lines.get(i)) {
+					lines.set(i, line);
+					converted = true;
 				}
 			}
 		}
+
+		return converted;
+	}
+
+	private List<ItemStack> decodeItems(List<ItemLine> lines) {
+		List<ItemStack> items = new ArrayList<>();
+
+		for (ItemLine line : lines) {
+			try {
+				items.add(line.toItemStack());
+			} catch (IOException ex) {
+				plugin.getLogger().log(Level.WARNING, "Could not decode an item of the shop at " + shopLoc.serialize() + "!", ex);
+			}
+		}
+
+		return items;
+	}
+
+	/**
+	 * Returns the cost lines in the same order as {@link #getCost()}, if some items could not be decoded
+	 * the lines are rebuilt from the decoded items first since the shop is being changed anyway
+	 */
+	private List<ItemLine> editableCostLines() {
+		List<ItemStack> items = getCost();
+
+		if (costPartial) {
+			costLines = linesOf(items);
+			costListB64 = null;
+			costPartial = false;
+		}
+
+		return costLines;
+	}
+
+	/**
+	 * Returns the product lines in the same order as {@link #getProduct()}, if some items could not be decoded
+	 * the lines are rebuilt from the decoded items first since the shop is being changed anyway
+	 */
+	private List<ItemLine> editableProductLines() {
+		List<ItemStack> items = getProduct();
+
+		if (productPartial) {
+			productLines = linesOf(items);
+			productListB64 = null;
+			productPartial = false;
+		}
+
+		return productLines;
+	}
+
+	private List<ItemLine> linesOf(List<ItemStack> items) {
+		List<ItemLine> lines = new ArrayList<>();
+		for (ItemStack item : items) {
+			lines.add(ItemLine.of(item));
+		}
+
+		return lines;
+	}
+
+	/**
+	 * Adds the item to the line of an equal item or as a new line
+	 */
+	private void addItem(List<ItemStack> items, List<ItemLine> lines, ItemStack newItem) {
+		for (int i = 0; i < items.size(); i++) {
+			ItemStack item = items.get(i);
+
+			if (item.isSimilar(newItem)) {
+				item.setAmount(item.getAmount() + newItem.getAmount());
+				lines.set(i, lines.get(i).withAmount(item.getAmount()));
+				return;
+			}
+		}
+
+		items.add(newItem.clone());
+		lines.add(ItemLine.of(newItem));
 	}
 
 	/**
@@ -660,8 +877,6 @@ public class Shop implements Serializable {
 		shopLoc.stringToWorld();
 		if (!shopType.isITrade() && chestLoc != null)
 			chestLoc.stringToWorld();
-		if (getShopSign() != null)
-			updateSign();
 	}
 
 	/**
@@ -674,130 +889,139 @@ public class Shop implements Serializable {
 	}
 
 	/**
-	 * Saves the shop too file
+	 * Applies several changes to the shop at once, saves requested while the changes
+	 * run are delayed until the outermost edit finishes and then happen only once
+	 *
+	 * @param changes changes to apply to this shop
+	 */
+	public void edit(Consumer<Shop> changes) {
+		editDepth++;
+
+		try {
+			changes.accept(this);
+		} finally {
+			if (--editDepth == 0 && pendingSave) {
+				pendingSave = false;
+				saveShop();
+			}
+		}
+	}
+
+	/**
+	 * Saves the shop too file, delayed until the end of the current {@link #edit(Consumer)}
 	 */
 	public void saveShop() {
-		new JsonConfiguration(shopLoc.getLocation().getChunk()).saveShop(this);
+		if (editDepth > 0) {
+			pendingSave = true;
+			return;
+		}
+
+		plugin.getShopRegistry().saveShop(this);
 	}
 
 	/**
 	 * Returns the shops sign as a Sign
 	 *
-	 * @return Shop sign as Sign
+	 * @return Shop sign as Sign, null if the sign is missing or its chunk is not loaded
 	 */
 	public Sign getShopSign() {
+		if (!new ShopChunk(shopLoc).isLoaded())
+			return null;
+
 		Block b = getShopLocation().getBlock();
-		Sign s = null;
 
-		if (ShopType.isShop(b)) {
-			s = (Sign) b.getState();
-		}
-		return s;
+		if (!plugin.getSigns().getSignTypes().contains(b.getType()))
+			return null;
+
+		// Callers change the sign, so this has to be a snapshot
+		BlockState state = BlockStates.snapshot(b);
+		return state instanceof Sign && ShopType.isShop((Sign) state) ? (Sign) state : null;
 	}
 
 	/**
-	 * Updates the text on the shops sign
+	 * Updates the text on the shops sign, the sign is rendered once on the next tick
 	 */
 	public void updateSign() {
+		signLines = null;
+
 		if (signChangeEvent != null)
 			updateSign(signChangeEvent);
-		else {
-			Sign s = getShopSign();
-
-			if (!isMissingItems()) {
-				s.setLine(0, ChatColor.DARK_GREEN + shopType.toHeader());
-			} else {
-				s.setLine(0, ChatColor.GRAY + shopType.toHeader());
-			}
-
-			if (product.size() == 1) {
-				StringBuilder sb = new StringBuilder();
-
-				sb.append(product.get(0).getAmount());
-				sb.append(" ");
-
-				sb.append((product.get(0).hasItemMeta() && product.get(0).getItemMeta().hasDisplayName()) ?
-						product.get(0).getItemMeta().getDisplayName() :
-						product.get(0).getType().toString());
-
-				s.setLine(1, sb.toString().substring(0, (sb.length() < 15) ? sb.length() : 15));
-
-			} else if (product.size() == 0) {
-				s.setLine(1, "");
-			} else {
-				s.setLine(1, "Use 'what' cmd");
-			}
+		else
+			plugin.getSignRenderQueue().queue(this);
+	}
 
-			if (cost.size() == 1) {
-				StringBuilder sb = new StringBuilder();
+	/**
+	 * Writes the text of this shop to its sign, the block is only updated if the text changed
+	 */
+	public void renderSign() {
+		Sign s = getShopSign();
 
-				sb.append(cost.get(0).getAmount());
-				sb.append(" ");
+		if (s == null)
+			return;
 
-				sb.append((cost.get(0).hasItemMeta() && cost.get(0).getItemMeta().hasDisplayName()) ?
-						cost.get(0).getItemMeta().getDisplayName() :
-						cost.get(0).getType().toString());
+		String[] lines = getSignLines();
+		boolean changed = false;
 
-				s.setLine(2, sb.toString().substring(0, (sb.length() < 15) ? sb.length() : 15));
-			} else if (cost.size() == 0) {
-				s.setLine(2, "");
-			} else {
-				s.setLine(2, "Use 'what' cmd");
+		for (int i = 0; i < lines.length; i++) {
+			if (!lines[i].equals(s.getLine(i))) {
+				s.setLine(i, lines[i]);
+				changed = true;
 			}
+		}
 
-			s.setLine(3, status.getLine());
+		if (changed)
 			s.update();
-		}
 	}
 
 	/**
-	 * Updates the text on the shops sign
+	 * Updates the text on the shops sign during a SignChangeEvent
 	 *
-	 * @param signEvent SignEvent to update the sign for
+	 * @param signEvent SignChangeEvent to update the sign for
 	 */
 	public void updateSign(SignChangeEvent signEvent) {
-		if (!isMissingItems()) {
-			signEvent.setLine(0, ChatColor.DARK_GREEN + shopType.toHeader());
-		} else {
-			signEvent.setLine(0, ChatColor.GRAY + shopType.toHeader());
-		}
-
-		if (product.size() == 1) {
-			StringBuilder sb = new StringBuilder();
+		String[] lines = getSignLines();
 
-			sb.append(product.get(0).getAmount());
-			sb.append(" ");
+		for (int i = 0; i < lines.length; i++) {
+			signEvent.setLine(i, lines[i]);
+		}
+	}
 
-			sb.append((product.get(0).hasItemMeta() && product.get(0).getItemMeta().hasDisplayName()) ?
-					product.get(0).getItemMeta().getDisplayName() :
-					product.get(0).getType().toString());
+	/**
+	 * Returns the four lines of the shops sign, rendered once and kept until the shop changes
+	 *
+	 * @return lines of the shops sign
+	 */
+	public String[] getSignLines() {
+		if (signLines == null) {
+			signLines = new String[]{
+					(isMissingItems() ? ChatColor.GRAY : ChatColor.DARK_GREEN) + shopType.toHeader(),
+					getItemLine(getProduct()),
+					getItemLine(getCost()),
+					status.getLine()
+			};
+		}
 
-			signEvent.setLine(1, sb.toString().substring(0, (sb.length() < 15) ? sb.length() : 15));
+		return signLines;
+	}
 
-		} else if (product.size() == 0) {
-			signEvent.setLine(1, "");
-		} else {
-			signEvent.setLine(1, "Use 'what' cmd");
+	private String getItemLine(List<ItemStack> items) {
+		if (items == null || items.size() == 0) {
+			return "";
+		} else if (items.size() > 1) {
+			return "Use 'what' cmd";
 		}
 
-		if (cost.size() == 1) {
-			StringBuilder sb = new StringBuilder();
-
-			sb.append(cost.get(0).getAmount());
-			sb.append(" ");
+		ItemStack item = items.get(0);
+		StringBuilder sb = new StringBuilder();
 
-			sb.append((cost.get(0).hasItemMeta() && cost.get(0).getItemMeta().hasDisplayName()) ?
-					cost.get(0).getItemMeta().getDisplayName() :
-					cost.get(0).getType().toString());
+		sb.append(item.getAmount());
+		sb.append(" ");
 
-			signEvent.setLine(2, sb.toString().substring(0, (sb.length() < 15) ? sb.length() : 15));
-		} else if (cost.size() == 0) {
-			signEvent.setLine(2, "");
-		} else {
-			signEvent.setLine(2, "Use 'what' cmd");
-		}
+		sb.append((item.hasItemMeta() && item.getItemMeta().hasDisplayName()) ?
+				item.getItemMeta().getDisplayName() :
+				item.getType().toString());
 
-		signEvent.setLine(3, status.getLine());
+		return sb.toString().substring(0, (sb.length() < 15) ? sb.length() : 15);
 	}
 
 	/**
@@ -806,8 +1030,13 @@ public class Shop implements Serializable {
 	 * @return shops inventory as BlockState
 	 */
 	public BlockState getStorage() {
+		Block block = getStorageBlock();
+		return block == null ? null : BlockStates.read(block);
+	}
+
+	private Block getStorageBlock() {
 		try {
-			return getInventoryLocation().getBlock().getState();
+			return getInventoryLocation().getBlock();
 		} catch (NullPointerException npe) {
 			return null;
 		}
@@ -817,7 +1046,8 @@ public class Shop implements Serializable {
 	 * Removes the shops inventory from the shop
 	 */
 	public void removeStorage() {
-		if (hasStorage()) {
+		if (chestLoc != null) {
+			plugin.getStorageCache().invalidate(chestLoc);
 			chestLoc = null;
 		}
 	}
@@ -825,10 +1055,11 @@ public class Shop implements Serializable {
 	/**
 	 * Returns if the shops inventory exists
 	 *
-	 * @return shops inventory as BlockState
+	 * @return true if the storage block is a container
 	 */
 	public boolean hasStorage() {
-		return getStorage() != null;
+		Block block = getStorageBlock();
+		return block != null && BlockStates.read(block) instanceof Container;
 	}
 
 	/**
@@ -846,13 +1077,11 @@ public class Shop implements Serializable {
 	 * @return true if shop opened
 	 */
 	public boolean setOpen() {
-		boolean ret;
-
-        setStatus(ShopStatus.OPEN);
-        updateStatus();
+		edit(shop -> {
+			setStatus(ShopStatus.OPEN);
+			updateStatus();
+		});
 
-		saveShop();
-		updateSign();
         return status.equals(ShopStatus.OPEN);
     }
 
@@ -860,28 +1089,65 @@ public class Shop implements Serializable {
      * Automatically updates a shops status if it is not CLOSED
      */
     public void updateStatus() {
-        if (!status.equals(ShopStatus.CLOSED)) {
-            if (!isMissingItems() && (chestLoc != null || shopType.equals(ShopType.ITRADE))) {
-                if (getChestAsSC().hasStock(product))
-                    setStatus(ShopStatus.OPEN);
-                else
-                    setStatus(ShopStatus.OUT_OF_STOCK);
-            } else {
-                setStatus(ShopStatus.INCOMPLETE);
-            }
-        }
-
-        saveShop();
-        updateSign();
+		edit(shop -> {
+			if (!status.equals(ShopStatus.CLOSED)) {
+				if (!isMissingItems() && (chestLoc != null || shopType.equals(ShopType.ITRADE))) {
+					if (hasStock())
+						setStatus(ShopStatus.OPEN);
+					else
+						setStatus(ShopStatus.OUT_OF_STOCK);
+				} else {
+					setStatus(ShopStatus.INCOMPLETE);
+				}
+			}
+
+			saveShop();
+			updateSign();
+		});
     }
 
+	/**
+	 * Returns the counter of the products in the storage of this shop
+	 *
+	 * @return StockCounter of the shop, created on first use
+	 */
+	public StockCounter getStockCounter() {
+		if (stockCounter == null)
+			stockCounter = new StockCounter(getProductKeys());
+
+		return stockCounter;
+	}
+
+	/**
+	 * Checks if the storage holds the products for at least one trade, the storage is only counted
+	 * when the stock counter is stale
+	 *
+	 * @return true if the shop is in stock
+	 */
+	public boolean hasStock() {
+		if (shopType.isITrade())
+			return true;
+
+		StockCounter counter = getStockCounter();
+		if (counter.needsRecount()) {
+			Inventory storage = getChestAsSC().getInventory();
+
+			if (storage == null)
+				return false;
+
+			counter.recount(storage);
+		}
+
+		return counter.hasStock();
+	}
+
 	/**
 	 * Checks if shop has necessary items to make a trade
 	 *
 	 * @return true if items are missing
 	 */
 	public boolean isMissingItems() {
-		return product == null || cost == null;
+		return (productLines == null && productListB64 == null) || (costLines == null && costListB64 == null);
 	}
 
 	/**
@@ -897,9 +1163,8 @@ public class Shop implements Serializable {
 	 * Removes this shop from file
 	 */
 	public void remove() {
-		JsonConfiguration json = new JsonConfiguration(shopLoc.getLocation().getChunk());
-
-		json.removeShop(shopLoc);
+		plugin.getSignRenderQueue().cancel(this);
+		plugin.getShopRegistry().removeShop(shopLoc);
 	}
 
 	/**
@@ -973,7 +1238,7 @@ public class Shop implements Serializable {
 	 * @return true if all costs are valid
 	 */
 	public boolean areCostsValid() {
-		for (ItemStack iS : cost) {
+		for (ItemStack iS : getCost()) {
 			if (!utils.isValidType(iS.getType()))
 				return false;
 		}
@@ -987,7 +1252,7 @@ public class Shop implements Serializable {
 	 * @return true if all products are valid
 	 */
 	public boolean areProductsValid() {
-		for (ItemStack iS : product) {
+		for (ItemStack iS : getProduct()) {
 			if (!utils.isValidType(iS.getType()))
 				return false;
 		}
@@ -1003,7 +1268,7 @@ public class Shop implements Serializable {
 	 */
 	public Boolean checkProduct(int multiplier) {
 		setStorageInventory();
-		return utils.checkInventory(storageInv, product, multiplier);
+		return utils.checkInventory(storageInv, getProduct(), multiplier);
 	}
 
 	/**
@@ -1014,7 +1279,7 @@ public class Shop implements Serializable {
 	 */
 	public Boolean checkCost(int multiplier) {
 		setStorageInventory();
-		return utils.checkInventory(storageInv, cost, multiplier);
+		return utils.checkInventory(storageInv, getCost(), multiplier);
 	}
 
 
@@ -32,12 +32,16 @@ import org.bukkit.Nameable;
 import org.bukkit.block.Block;
 import org.bukkit.block.BlockFace;
 import org.bukkit.block.BlockState;
+import org.bukkit.block.TileState;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.InventoryHolder;
 import org.bukkit.inventory.ItemStack;
 import org.shanerx.tradeshop.TradeShop;
+import org.shanerx.tradeshop.utils.BlockStates;
 import org.shanerx.tradeshop.utils.Utils;
+import org.shanerx.tradeshop.utils.trade.InventoryPlan;
+import org.shanerx.tradeshop.utils.trade.ItemKey;
 
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -51,13 +55,14 @@ public class ShopChest extends Utils {
 	private Location loc;
 	private Block chest;
 	private UUID owner;
-	private String sectionSeparator = "\\$ \\^", titleSeparator = ":";
+	private BlockState state;
+	private static final String sectionSeparator = "\\$ \\^", titleSeparator = ":", legacyMarker = "$ ^Sign:l_";
 
 	public ShopChest(Location chestLoc) {
 		this.loc = chestLoc;
 
 		getBlock();
-		loadFromName();
+		loadTag();
 	}
 
 	public ShopChest(Block chest, UUID owner, Location sign) {
@@ -70,8 +75,91 @@ public class ShopChest extends Utils {
 	public static boolean isShopChest(Block checking) {
 		return checking != null &&
 				plugin.getListManager().isInventory(checking) &&
-				((Nameable) checking.getState()).getCustomName() != null &&
-				((Nameable) checking.getState()).getCustomName().contains("$ ^Sign:l_");
+				readTag(checking) != null;
+	}
+
+	/**
+	 * Reads the shop data of a storage block with a single state read.
+	 * <br>
+	 * Blocks still named in the legacy format are migrated to a tag on 1.14+.
+	 *
+	 * @param block the storage block
+	 * @return the tag, null if the block does not belong to a shop
+	 */
+	public static ShopChestTag readTag(Block block) {
+		return readTag(block, BlockStates.read(block));
+	}
+
+	private static ShopChestTag readTag(Block block, BlockState state) {
+		if (usesTags() && state instanceof TileState) {
+			ShopChestTag tag = ShopChestTagType.read((TileState) state);
+			if (tag != null)
+				return tag;
+		}
+
+		if (!(state instanceof Nameable))
+			return null;
+
+		String name = ((Nameable) state).getCustomName();
+		if (name == null || !name.contains(legacyMarker))
+			return null;
+
+		ShopChestTag tag = parseLegacyName(name);
+
+		if (tag != null && usesTags() && state instanceof TileState) {
+			BlockState snapshot = BlockStates.snapshot(block);
+
+			ShopChestTagType.write((TileState) snapshot, tag);
+			((Nameable) snapshot).setCustomName(stripLegacyName(name));
+			snapshot.update();
+		}
+
+		return tag;
+	}
+
+	/**
+	 * Removes the shop data from a single storage block
+	 *
+	 * @param block the storage block
+	 */
+	public static void untag(Block block) {
+		if (block == null)
+			return;
+
+		BlockState state = BlockStates.snapshot(block);
+		boolean changed = usesTags() && state instanceof TileState && ShopChestTagType.remove((TileState) state);
+
+		if (state instanceof Nameable) {
+			String name = ((Nameable) state).getCustomName();
+
+			if (name != null && name.contains(legacyMarker)) {
+				((Nameable) state).setCustomName(stripLegacyName(name));
+				changed = true;
+			}
+		}
+
+		if (changed)
+			state.update();
+
+		plugin.getStorageCache().invalidate(new ShopLocation(block.getLocation()));
+	}
+
+	private static boolean usesTags() {
+		return !plugin.getVersion().isBelow(1, 14);
+	}
+
+	private static ShopChestTag parseLegacyName(String name) {
+		try {
+			String[] sections = name.split(sectionSeparator);
+			return new ShopChestTag(ShopLocation.deserialize(sections[1].split(titleSeparator)[1]), UUID.fromString(sections[2].split(titleSeparator)[1]));
+		} catch (RuntimeException e) {
+			return null;
+		}
+	}
+
+	private static String stripLegacyName(String name) {
+		String stripped = name.split(sectionSeparator)[0];
+		return stripped.isEmpty() ? null : stripped;
 	}
 
 	public static Block getOtherHalfOfDoubleChest(Block chest) {
@@ -101,12 +189,20 @@ public class ShopChest extends Utils {
 		}
 	}
 
+	/**
+	 * Returns the state of the storage block, read once and shared by everything this ShopChest does
+	 *
+	 * @return state of the storage block, must not be changed
+	 */
 	public BlockState getBlockState() {
-		return chest.getState();
+		if (state == null)
+			state = BlockStates.read(chest);
+
+		return state;
 	}
 
 	public Inventory getInventory() {
-		BlockState bs = chest.getState();
+		BlockState bs = getBlockState();
 		if (bs instanceof InventoryHolder) {
 			return ((InventoryHolder) bs).getInventory();
 		}
@@ -114,17 +210,22 @@ public class ShopChest extends Utils {
 		return null;
 	}
 
-    public boolean hasStock(List<ItemStack> product) {
-        return getItems(getInventory(), product, 1).get(0) != null;
+    public boolean hasStock(List<ItemKey> product) {
+        InventoryPlan plan = InventoryPlan.acquire(getInventory().getStorageContents());
+
+        try {
+            return plan.take(product, 1, null) < 0;
+        } finally {
+            plan.release();
+        }
     }
 
-	public void loadFromName() {
-		if (chest != null &&
-				((Nameable) chest.getState()).getCustomName() != null &&
-				((Nameable) chest.getState()).getCustomName().contains("$ ^Sign:l_")) {
-			String[] name = ((Nameable) chest.getState()).getCustomName().split(sectionSeparator);
-			shopSign = ShopLocation.deserialize(name[1].split(titleSeparator)[1]);
-			owner = UUID.fromString(name[2].split(titleSeparator)[1]);
+	public void loadTag() {
+		ShopChestTag tag = chest != null ? readTag(chest, getBlockState()) : null;
+
+		if (tag != null) {
+			shopSign = tag.getSign();
+			owner = tag.getOwner();
 		}
 	}
 
@@ -144,9 +245,13 @@ public class ShopChest extends Utils {
 	}
 
 	public String getName() {
+		return getName(getBlockState());
+	}
+
+	private String getName(BlockState bs) {
 		StringBuilder sb = new StringBuilder();
-		if (((Nameable) chest.getState()).getCustomName() != null) {
-			sb.append(((Nameable) chest.getState()).getCustomName().replaceAll(sectionSeparator, ""));
+		if (((Nameable) bs).getCustomName() != null) {
+			sb.append(((Nameable) bs).getCustomName().replaceAll(sectionSeparator, ""));
 		}
 		sb.append("$ ^Sign:");
 		sb.append(shopSign.serialize());
@@ -158,45 +263,35 @@ public class ShopChest extends Utils {
 
 	public void resetName() {
 		if (chest != null) {
-			BlockState bs = chest.getState();
-			if (bs instanceof Nameable && ((Nameable) bs).getCustomName() != null
-					&& ((Nameable) bs).getCustomName().contains("$ ^Sign:l_")) {
-				((Nameable) bs).setCustomName(((Nameable) bs).getCustomName().split(sectionSeparator)[0]);
-
-				if (isDoubleChest(chest)) {
-					BlockState dblSide = getOtherHalfOfDoubleChest(chest).getState();
-					((Nameable) dblSide).setCustomName(
-							((Nameable) dblSide).getCustomName().split(sectionSeparator)[0]);
-
-					dblSide.update();
-				}
+			untag(chest);
 
-				bs.update();
+			if (isDoubleChest(chest)) {
+				untag(getOtherHalfOfDoubleChest(chest));
 			}
 		}
 	}
 
 	public void setName() {
-		BlockState bs = chest.getState();
-		if (bs instanceof Nameable) {
-			((Nameable) bs).setCustomName(getName());
-
-			if (isDoubleChest(chest)) {
-				BlockState dblSide = getOtherHalfOfDoubleChest(chest).getState();
-				((Nameable) dblSide).setCustomName(getName());
+		tag(BlockStates.snapshot(chest));
 
-				dblSide.update();
-			}
-
-			bs.update();
+		if (isDoubleChest(chest)) {
+			tag(BlockStates.snapshot(getOtherHalfOfDoubleChest(chest)));
 		}
 	}
 
 	public void setEventName(BlockPlaceEvent event) {
-		BlockState bs = event.getBlockPlaced().getState();
-		if (bs instanceof Nameable) {
-			((Nameable) bs).setCustomName(getName());
+		tag(BlockStates.snapshot(event.getBlockPlaced()));
+	}
 
+	/**
+	 * Stores the shop data on the state, as a tag on 1.14+ and in the custom name before
+	 */
+	private void tag(BlockState bs) {
+		if (usesTags() && bs instanceof TileState) {
+			ShopChestTagType.write((TileState) bs, new ShopChestTag(shopSign, owner));
+			bs.update();
+		} else if (bs instanceof Nameable) {
+			((Nameable) bs).setCustomName(getName(bs));
 			bs.update();
 		}
 	}
@@ -0,0 +1,51 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.objects;
+
+import java.util.UUID;
+
+/**
+ * Shop data stored on a shop storage block, the sign the storage belongs to and the owner of the shop.
+ */
+public class ShopChestTag {
+
+	private final ShopLocation sign;
+	private final UUID owner;
+
+	public ShopChestTag(ShopLocation sign, UUID owner) {
+		this.sign = sign;
+		this.owner = owner;
+	}
+
+	public ShopLocation getSign() {
+		return sign;
+	}
+
+	public UUID getOwner() {
+		return owner;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.objects;
+
+import org.bukkit.Bukkit;
+import org.bukkit.NamespacedKey;
+import org.bukkit.block.TileState;
+import org.bukkit.persistence.PersistentDataAdapterContext;
+import org.bukkit.persistence.PersistentDataContainer;
+import org.bukkit.persistence.PersistentDataType;
+import org.bukkit.plugin.Plugin;
+
+import java.util.UUID;
+
+/**
+ * Stores {@link ShopChestTag}s in the PersistentDataContainer of a storage block.
+ * <p>
+ * The container API only exists since 1.14, this class must not be loaded on older versions.
+ * </p>
+ */
+final class ShopChestTagType implements PersistentDataType<PersistentDataContainer, ShopChestTag> {
+
+	private static final Plugin plugin = Bukkit.getPluginManager().getPlugin("TradeShop");
+	private static final NamespacedKey TAG = new NamespacedKey(plugin, "shop-chest"),
+			SIGN = new NamespacedKey(plugin, "sign"),
+			OWNER_MOST = new NamespacedKey(plugin, "owner-most"),
+			OWNER_LEAST = new NamespacedKey(plugin, "owner-least");
+	private static final ShopChestTagType TYPE = new ShopChestTagType();
+
+	private ShopChestTagType() {
+	}
+
+	/**
+	 * Returns the tag of the state
+	 *
+	 * @param state state of the storage block
+	 * @return the tag or null if the block is not tagged
+	 */
+	static ShopChestTag read(TileState state) {
+		PersistentDataContainer container = state.getPersistentDataContainer();
+		return container.has(TAG, TYPE) ? container.get(TAG, TYPE) : null;
+	}
+
+	/**
+	 * Sets the tag of the state, the state has to be updated afterwards
+	 */
+	static void write(TileState state, ShopChestTag tag) {
+		state.getPersistentDataContainer().set(TAG, TYPE, tag);
+	}
+
+	/**
+	 * Removes the tag of the state, the state has to be updated afterwards
+	 *
+	 * @return true if the state was tagged
+	 */
+	static boolean remove(TileState state) {
+		PersistentDataContainer container = state.getPersistentDataContainer();
+
+		if (!container.has(TAG, TYPE))
+			return false;
+
+		container.remove(TAG);
+		return true;
+	}
+
+	@Override
+	public Class<PersistentDataContainer> getPrimitiveType() {
+		return PersistentDataContainer.class;
+	}
+
+	@Override
+	public Class<ShopChestTag> getComplexType() {
+		return ShopChestTag.class;
+	}
+
+	@Override
+	public PersistentDataContainer toPrimitive(ShopChestTag tag, PersistentDataAdapterContext context) {
+		PersistentDataContainer container = context.newPersistentDataContainer();
+
+		container.set(SIGN, PersistentDataType.STRING, tag.getSign().serialize());
+		if (tag.getOwner() != null) {
+			container.set(OWNER_MOST, PersistentDataType.LONG, tag.getOwner().getMostSignificantBits());
+			container.set(OWNER_LEAST, PersistentDataType.LONG, tag.getOwner().getLeastSignificantBits());
+		}
+
+		return container;
+	}
+
+	@Override
+	public ShopChestTag fromPrimitive(PersistentDataContainer container, PersistentDataAdapterContext context) {
+		String sign = container.get(SIGN, PersistentDataType.STRING);
+		Long most = container.get(OWNER_MOST, PersistentDataType.LONG), least = container.get(OWNER_LEAST, PersistentDataType.LONG);
+
+		return new ShopChestTag(sign == null ? null : ShopLocation.deserialize(sign), most == null || least == null ? null : new UUID(most, least));
+	}
+}
@@ -30,48 +30,74 @@ import org.bukkit.Chunk;
 import org.bukkit.World;
 
 import java.io.Serializable;
+import java.util.Objects;
 
+/**
+ * Identifies the chunk a shop is stored in by its world and chunk coordinates.
+ * <p>
+ * This is a pure value key, creating one never loads or generates the chunk itself.
+ * </p>
+ */
 public class ShopChunk implements Serializable {
 
 	final private String div = "_";
-	private World world;
+	private transient World world;
+	private String worldName;
 	private int x, z;
-	private Chunk chunk;
 
 	public ShopChunk(World w, int x, int z) {
 		this.world = w;
+		this.worldName = w.getName();
 		this.x = x;
 		this.z = z;
-		chunk = world.getChunkAt(x, z);
 	}
 
 	public ShopChunk(Chunk c) {
-		this.world = c.getWorld();
-		this.x = c.getX();
-		this.z = c.getZ();
-		chunk = c;
+		this(c.getWorld(), c.getX(), c.getZ());
+	}
+
+	public ShopChunk(String worldName, int x, int z) {
+		this.worldName = worldName;
+		this.x = x;
+		this.z = z;
 	}
 
-	public static Chunk deserialize(String loc) {
+	/**
+	 * Creates the key of the chunk containing the location without loading the chunk
+	 *
+	 * @param loc Location inside of the chunk
+	 */
+	public ShopChunk(ShopLocation loc) {
+		this(loc.getWorldName(), (int) Math.floor(loc.getX()) >> 4, (int) Math.floor(loc.getZ()) >> 4);
+		this.world = loc.getWorld();
+	}
+
+	public static ShopChunk deserialize(String loc) {
 		if (loc.startsWith("c")) {
 			String[] locA = loc.split("_");//Keep same as div
-            World world = Bukkit.getWorld(locA[1].replace("-", "_"));
 			int x = Integer.parseInt(locA[2]), z = Integer.parseInt(locA[3]);
 
-			return world.getChunkAt(x, z);
+			return new ShopChunk(locA[1].replace("-", "_"), x, z);
 		}
 
 		return null;
 	}
 
 	public String serialize() {
-        return "c" + div + world.getName().replace("_", "-") + div + x + div + z;
+		return "c" + div + worldName.replace("_", "-") + div + x + div + z;
 	}
 
 	public World getWorld() {
+		if (world == null)
+			world = Bukkit.getWorld(worldName);
+
 		return world;
 	}
 
+	public String getWorldName() {
+		return worldName;
+	}
+
 	public int getX() {
 		return x;
 	}
@@ -80,7 +106,33 @@ public class ShopChunk implements Serializable {
 		return z;
 	}
 
-	public Chunk getChunk() {
-		return chunk;
+	/**
+	 * Returns whether the chunk is currently loaded, never loads the chunk
+	 *
+	 * @return true if the world and chunk are loaded
+	 */
+	public boolean isLoaded() {
+		return getWorld() != null && getWorld().isChunkLoaded(x, z);
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		if (this == o)
+			return true;
+		if (!(o instanceof ShopChunk))
+			return false;
+
+		ShopChunk other = (ShopChunk) o;
+		return x == other.x && z == other.z && worldName.equals(other.worldName);
+	}
+
+	@Override
+	public int hashCode() {
+		return Objects.hash(worldName, x, z);
+	}
+
+	@Override
+	public String toString() {
+		return serialize();
 	}
-}
\ No newline at end of file
+}
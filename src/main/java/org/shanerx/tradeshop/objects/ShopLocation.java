@@ -46,6 +46,16 @@ public class ShopLocation implements Serializable {
 		this.z = z;
 	}
 
+	/**
+	 * Creates a location in a world that may not be loaded, the world is resolved by {@link #stringToWorld()}
+	 */
+	public ShopLocation(String worldName, double x, double y, double z) {
+		this.worldName = worldName;
+		this.x = x;
+		this.y = y;
+		this.z = z;
+	}
+
 	public ShopLocation(Location loc) {
 		this.world = loc.getWorld();
 		this.worldName = loc.getWorld().getName();
@@ -60,6 +70,9 @@ public class ShopLocation implements Serializable {
             World world = Bukkit.getWorld(locA[1].replace("-", "_"));
 			double x = Double.parseDouble(locA[2]), y = Double.parseDouble(locA[3]), z = Double.parseDouble(locA[4]);
 
+			if (world == null)
+				return new ShopLocation(locA[1].replace("-", "_"), x, y, z);
+
 			return new ShopLocation(world, x, y, z);
 		}
 
@@ -67,7 +80,7 @@ public class ShopLocation implements Serializable {
 	}
 
 	public String serialize() {
-        return "l" + div + world.getName().replace("_", "-") + div + x + div + y + div + z;
+        return "l" + div + worldName.replace("_", "-") + div + x + div + y + div + z;
 	}
 
 	public World getWorld() {
@@ -25,11 +25,11 @@
 
 package org.shanerx.tradeshop.objects;
 
-import com.google.gson.Gson;
 import com.google.gson.annotations.SerializedName;
 import org.bukkit.Bukkit;
 import org.bukkit.OfflinePlayer;
 import org.shanerx.tradeshop.enumys.ShopRole;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
 
 import java.io.Serializable;
 import java.util.UUID;
@@ -54,9 +54,20 @@ public class ShopUser implements Serializable {
 		this.role = role;
 	}
 
+	/**
+	 * Creates a ShopUser from stored data, the player is looked up when first used
+	 *
+	 * @param playerUUID UUID of the player as a String
+	 * @param role       role of the user
+	 */
+	public ShopUser(String playerUUID, ShopRole role) {
+		this.playerUUID = playerUUID;
+		this.role = role;
+	}
+
 	public static ShopUser deserialize(String serialized) {
-		ShopUser shopUser = new Gson().fromJson(serialized, ShopUser.class);
-		shopUser.player = Bukkit.getOfflinePlayer(UUID.fromString(shopUser.playerUUID));
+		ShopUser shopUser = GsonProcessor.getGson().fromJson(serialized, ShopUser.class);
+		shopUser.fix();
 		return shopUser;
 	}
 
@@ -70,8 +81,11 @@ public class ShopUser implements Serializable {
 		return player.getUniqueId();
 	}
 
+	public String getUUIDString() {
+		return playerUUID;
+	}
+
 	public ShopRole getRole() {
-		fix();
 		return role;
 	}
 
@@ -87,6 +101,6 @@ public class ShopUser implements Serializable {
 	}
 
 	public String serialize() {
-		return new Gson().toJson(this);
+		return GsonProcessor.getGson().toJson(this);
 	}
 }
\ No newline at end of file
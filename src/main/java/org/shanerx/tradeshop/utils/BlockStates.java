@@ -0,0 +1,96 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+
+/**
+ * Access to block states without copying more than needed.
+ * <p>
+ * {@link Block#getState()} copies the whole tile entity, for containers that includes the inventory.
+ * Servers that offer {@code Block#getState(boolean)} can return states that read the tile entity
+ * directly, {@link #read(Block)} uses those when available. States that are changed and applied with
+ * {@link BlockState#update()} are always taken with {@link #snapshot(Block)}.
+ * </p>
+ */
+public final class BlockStates {
+
+	private static final MethodHandle GET_STATE = findGetState();
+
+	private BlockStates() {
+	}
+
+	/**
+	 * Returns a state of the block for reading, it must not be changed
+	 *
+	 * @param block block to read
+	 * @return the state, without a snapshot of the tile entity if the server supports it
+	 */
+	public static BlockState read(Block block) {
+		if (GET_STATE != null) {
+			try {
+				return (BlockState) GET_STATE.invokeExact(block, false);
+			} catch (Throwable ignored) {
+				// Falls back to a snapshot
+			}
+		}
+
+		return block.getState();
+	}
+
+	/**
+	 * Returns a snapshot state of the block that can be changed and applied with {@link BlockState#update()}
+	 *
+	 * @param block block to read
+	 * @return snapshot state of the block
+	 */
+	public static BlockState snapshot(Block block) {
+		return block.getState();
+	}
+
+	/**
+	 * Returns true if the server supports states without snapshots
+	 *
+	 * @return true if {@link #read(Block)} avoids copying tile entities
+	 */
+	public static boolean isSnapshotFree() {
+		return GET_STATE != null;
+	}
+
+	private static MethodHandle findGetState() {
+		try {
+			return MethodHandles.publicLookup().findVirtual(Block.class, "getState", MethodType.methodType(BlockState.class, boolean.class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			return null;
+		}
+	}
+}
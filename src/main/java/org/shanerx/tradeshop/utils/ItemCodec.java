@@ -0,0 +1,392 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Compact binary format for items, written from the {@link ConfigurationSerializable} form of the item.
+ * <p>
+ * Data starts with a version byte followed by a table of all strings used by the item and the value tree.
+ * Numbers are written as varints and strings as indexes into the table, so repeated keys like
+ * {@code meta-type} or enchantment names are only stored once. {@link #encodeToString(ItemStack)} adds a
+ * Base64 armor with the {@link #ARMOR_PREFIX} so the result can be stored where the old Base64 strings were.
+ * </p>
+ */
+public final class ItemCodec {
+
+	/**
+	 * Prefix of armored data, cannot appear in the Base64 strings written by older versions
+	 */
+	public static final String ARMOR_PREFIX = "ts:";
+
+	private static final int VERSION = 1;
+
+	private static final int NULL = 0, STRING = 1, INT = 2, LONG = 3, DOUBLE = 4, FLOAT = 5, TRUE = 6, FALSE = 7,
+			LIST = 8, MAP = 9, SERIALIZABLE = 10, SHORT = 11, BYTE = 12;
+
+	private ItemCodec() {
+	}
+
+	/**
+	 * Returns true if the string was written by {@link #encodeToString(ItemStack)}
+	 *
+	 * @param data string to check
+	 * @return true if the string is armored compact data
+	 */
+	public static boolean isArmored(String data) {
+		return data.startsWith(ARMOR_PREFIX);
+	}
+
+	/**
+	 * Encodes the item and armors it with Base64
+	 *
+	 * @param item item to encode
+	 * @return armored compact data
+	 * @throws IllegalArgumentException if the item contains values this format cannot store
+	 */
+	public static String encodeToString(ItemStack item) {
+		return ARMOR_PREFIX + Base64.getEncoder().encodeToString(encode(item));
+	}
+
+	/**
+	 * Decodes armored data written by {@link #encodeToString(ItemStack)}
+	 *
+	 * @param data armored compact data
+	 * @return the decoded item
+	 * @throws IOException if the data is not valid
+	 */
+	public static ItemStack decodeFromString(String data) throws IOException {
+		if (!isArmored(data))
+			throw new IOException("Missing compact item prefix.");
+
+		try {
+			return decode(Base64.getDecoder().decode(data.substring(ARMOR_PREFIX.length())));
+		} catch (IllegalArgumentException e) {
+			throw new IOException("Invalid compact item armor.", e);
+		}
+	}
+
+	/**
+	 * Encodes the item
+	 *
+	 * @param item item to encode
+	 * @return compact data
+	 * @throws IllegalArgumentException if the item contains values this format cannot store
+	 */
+	public static byte[] encode(ItemStack item) {
+		return encodeValue(item);
+	}
+
+	/**
+	 * Encodes any value the format can store, items are written as their serialized form
+	 *
+	 * @param value value to encode
+	 * @return compact data
+	 * @throws IllegalArgumentException if the value contains values this format cannot store
+	 */
+	static byte[] encodeValue(Object value) {
+		Writer body = new Writer();
+		body.writeValue(value);
+
+		Writer out = new Writer();
+		out.write(VERSION);
+		out.writeVarInt(body.strings.size());
+		for (String s : body.strings.keySet()) {
+			byte[] bytes = s.getBytes(StandardCharsets.UTF_8);
+			out.writeVarInt(bytes.length);
+			out.write(bytes, 0, bytes.length);
+		}
+		body.copyTo(out);
+
+		return out.toByteArray();
+	}
+
+	/**
+	 * Decodes data written by {@link #encode(ItemStack)}
+	 *
+	 * @param data compact data
+	 * @return the decoded item
+	 * @throws IOException if the data is not valid
+	 */
+	public static ItemStack decode(byte[] data) throws IOException {
+		Object value = decodeValue(data);
+		if (!(value instanceof ItemStack))
+			throw new IOException("Compact data does not contain an item.");
+
+		return (ItemStack) value;
+	}
+
+	/**
+	 * Decodes any value written by {@link #encodeValue(Object)}
+	 *
+	 * @param data compact data
+	 * @return the decoded value
+	 * @throws IOException if the data is not valid
+	 */
+	static Object decodeValue(byte[] data) throws IOException {
+		try {
+			Reader in = new Reader(data);
+
+			int version = in.read();
+			if (version != VERSION)
+				throw new IOException("Unsupported compact item version " + version + ".");
+
+			String[] strings = new String[in.readVarInt()];
+			for (int i = 0; i < strings.length; i++) {
+				int length = in.readVarInt();
+				strings[i] = new String(data, in.skip(length), length, StandardCharsets.UTF_8);
+			}
+			in.strings = strings;
+
+			return in.readValue();
+		} catch (IndexOutOfBoundsException | IllegalArgumentException | ClassCastException e) {
+			throw new IOException("Invalid compact item data.", e);
+		}
+	}
+
+	private static final class Writer extends ByteArrayOutputStream {
+
+		private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+		private void copyTo(Writer out) {
+			out.write(buf, 0, count);
+		}
+
+		private void writeVarInt(int value) {
+			while ((value & ~0x7F) != 0) {
+				write((value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write(value);
+		}
+
+		private void writeVarLong(long value) {
+			while ((value & ~0x7FL) != 0) {
+				write((int) (value & 0x7F) | 0x80);
+				value >>>= 7;
+			}
+			write((int) value);
+		}
+
+		private void writeString(String value) {
+			Integer index = strings.get(value);
+
+			if (index == null) {
+				index = strings.size();
+				strings.put(value, index);
+			}
+
+			writeVarInt(index);
+		}
+
+		private void writeEntries(Map<?, ?> map) {
+			writeVarInt(map.size());
+
+			for (Map.Entry<?, ?> entry : map.entrySet()) {
+				if (!(entry.getKey() instanceof String))
+					throw new IllegalArgumentException("Unsupported map key " + entry.getKey() + ".");
+
+				writeString((String) entry.getKey());
+				writeValue(entry.getValue());
+			}
+		}
+
+		private void writeValue(Object value) {
+			if (value == null) {
+				write(NULL);
+			} else if (value instanceof String) {
+				write(STRING);
+				writeString((String) value);
+			} else if (value instanceof Integer) {
+				write(INT);
+				int i = (Integer) value;
+				writeVarInt((i << 1) ^ (i >> 31));
+			} else if (value instanceof Long) {
+				write(LONG);
+				long l = (Long) value;
+				writeVarLong((l << 1) ^ (l >> 63));
+			} else if (value instanceof Short) {
+				write(SHORT);
+				short s = (Short) value;
+				writeVarInt((s << 1) ^ (s >> 31));
+			} else if (value instanceof Byte) {
+				write(BYTE);
+				write((Byte) value);
+			} else if (value instanceof Double) {
+				write(DOUBLE);
+				writeVarLong(Long.reverseBytes(Double.doubleToLongBits((Double) value)));
+			} else if (value instanceof Float) {
+				write(FLOAT);
+				writeVarInt(Integer.reverseBytes(Float.floatToIntBits((Float) value)));
+			} else if (value instanceof Boolean) {
+				write((Boolean) value ? TRUE : FALSE);
+			} else if (value instanceof List) {
+				write(LIST);
+				List<?> list = (List<?>) value;
+				writeVarInt(list.size());
+				for (Object element : list) {
+					writeValue(element);
+				}
+			} else if (value instanceof Map) {
+				write(MAP);
+				writeEntries((Map<?, ?>) value);
+			} else if (value instanceof ConfigurationSerializable) {
+				ConfigurationSerializable serializable = (ConfigurationSerializable) value;
+				write(SERIALIZABLE);
+				writeString(ConfigurationSerialization.getAlias(serializable.getClass()));
+				writeEntries(serializable.serialize());
+			} else {
+				throw new IllegalArgumentException("Unsupported value type " + value.getClass().getName() + ".");
+			}
+		}
+	}
+
+	private static final class Reader {
+
+		private final byte[] data;
+		private int pos;
+		private String[] strings;
+
+		private Reader(byte[] data) {
+			this.data = data;
+		}
+
+		private int read() {
+			return data[pos++] & 0xFF;
+		}
+
+		private int skip(int length) {
+			int start = pos;
+
+			if (length < 0 || length > data.length - pos)
+				throw new IndexOutOfBoundsException("String runs past the end of the data.");
+
+			pos += length;
+			return start;
+		}
+
+		private int readVarInt() {
+			int value = 0;
+
+			for (int shift = 0; shift < 35; shift += 7) {
+				int b = read();
+				value |= (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return value;
+			}
+
+			throw new IllegalArgumentException("Varint is too long.");
+		}
+
+		private long readVarLong() {
+			long value = 0;
+
+			for (int shift = 0; shift < 70; shift += 7) {
+				int b = read();
+				value |= (long) (b & 0x7F) << shift;
+				if ((b & 0x80) == 0)
+					return value;
+			}
+
+			throw new IllegalArgumentException("Varint is too long.");
+		}
+
+		private String readString() {
+			return strings[readVarInt()];
+		}
+
+		private Map<String, Object> readEntries(Map<String, Object> map) throws IOException {
+			int size = readVarInt();
+
+			for (int i = 0; i < size; i++) {
+				String key = readString();
+				map.put(key, readValue());
+			}
+
+			return map;
+		}
+
+		private Object readValue() throws IOException {
+			int type = read();
+
+			switch (type) {
+				case NULL:
+					return null;
+				case STRING:
+					return readString();
+				case INT:
+					int i = readVarInt();
+					return (i >>> 1) ^ -(i & 1);
+				case LONG:
+					long l = readVarLong();
+					return (l >>> 1) ^ -(l & 1);
+				case SHORT:
+					int s = readVarInt();
+					return (short) ((s >>> 1) ^ -(s & 1));
+				case BYTE:
+					return (byte) read();
+				case DOUBLE:
+					return Double.longBitsToDouble(Long.reverseBytes(readVarLong()));
+				case FLOAT:
+					return Float.intBitsToFloat(Integer.reverseBytes(readVarInt()));
+				case TRUE:
+					return true;
+				case FALSE:
+					return false;
+				case LIST:
+					int size = readVarInt();
+					List<Object> list = new ArrayList<>(Math.min(size, data.length));
+					for (int j = 0; j < size; j++) {
+						list.add(readValue());
+					}
+					return list;
+				case MAP:
+					return readEntries(new LinkedHashMap<>());
+				case SERIALIZABLE:
+					Map<String, Object> map = new LinkedHashMap<>();
+					map.put(ConfigurationSerialization.SERIALIZED_TYPE_KEY, readString());
+					ConfigurationSerializable value = ConfigurationSerialization.deserializeObject(readEntries(map));
+					if (value == null)
+						throw new IOException("Unable to deserialize " + map.get(ConfigurationSerialization.SERIALIZED_TYPE_KEY) + ".");
+					return value;
+				default:
+					throw new IOException("Unknown compact value type " + type + ".");
+			}
+		}
+	}
+}
@@ -46,12 +46,36 @@ public class ItemSerializer {
 
 	/**
 	 * A method to serialize an {@link ItemStack} array to Base64 String.
+	 * Items are written with {@link ItemCodec} unless they do not survive a round trip through it.
 	 *
 	 * @param item to turn into a Base64 String.
 	 * @return Base64 string of the items.
 	 * @throws IllegalStateException if ItemStack cannot be saved
 	 */
 	public static String itemStackArrayToBase64(ItemStack item) throws IllegalStateException {
+		try {
+			String data = ItemCodec.encodeToString(item);
+
+			if (item.equals(ItemCodec.decodeFromString(data)))
+				return data;
+		} catch (IllegalArgumentException | IOException ignored) {
+			// Written in the old format below
+		}
+
+		return legacyToBase64(item);
+	}
+
+	/**
+	 * Returns true if the string was written with Java serialization by older versions
+	 *
+	 * @param data Base64 string to check
+	 * @return true if the string is in the old format
+	 */
+	public static boolean isLegacy(String data) {
+		return !ItemCodec.isArmored(data);
+	}
+
+	private static String legacyToBase64(ItemStack item) throws IllegalStateException {
 		try {
 			ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
 			BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream);
@@ -68,13 +92,16 @@ public class ItemSerializer {
 	}
 
 	/**
-	 * Gets an array of ItemStacks from Base64 string.
+	 * Gets an array of ItemStacks from Base64 string, both formats are read.
 	 *
 	 * @param data Base64 string to convert to ItemStack array.
 	 * @return ItemStack array created from the Base64 string.
 	 * @throws IOException if class type could not be decoded
 	 */
 	public static ItemStack itemStackArrayFromBase64(String data) throws IOException {
+		if (ItemCodec.isArmored(data))
+			return ItemCodec.decodeFromString(data);
+
 		try {
 			ByteArrayInputStream inputStream = new ByteArrayInputStream(Base64Coder.decodeLines(data));
 			BukkitObjectInputStream dataInput = new BukkitObjectInputStream(inputStream);
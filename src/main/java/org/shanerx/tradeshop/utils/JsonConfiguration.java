@@ -27,24 +27,30 @@ package org.shanerx.tradeshop.utils;
 
 import com.google.common.collect.Lists;
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
 import com.google.gson.JsonParser;
 import com.google.gson.reflect.TypeToken;
+import com.google.gson.stream.JsonReader;
+import org.bukkit.Bukkit;
 import org.bukkit.Chunk;
 import org.bukkit.inventory.ItemStack;
 import org.shanerx.tradeshop.objects.Shop;
 import org.shanerx.tradeshop.objects.ShopChunk;
 import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.utils.data.RegionFile;
+import org.shanerx.tradeshop.utils.data.ShopRecord;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
 
+import java.io.BufferedReader;
 import java.io.File;
-import java.io.FileNotFoundException;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.Serializable;
+import java.io.StringReader;
 import java.util.ArrayList;
+import java.util.Collection;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
@@ -58,58 +64,144 @@ public class JsonConfiguration extends Utils implements Serializable {
 	private JsonObject jsonObj;
 	private int configType;
 	private Gson gson;
+	private ShopChunk chunk;
+	private RegionFile region;
 
 	public JsonConfiguration(Chunk c) {
-		gson = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+		this(new ShopChunk(c));
+	}
+
+	public JsonConfiguration(ShopChunk chunk) {
+		this(chunk, false);
+	}
+
+	/**
+	 * Creates the configuration for a chunk's shops
+	 *
+	 * @param chunk         chunk the shops are in
+	 * @param regionStorage true to store the chunk inside of its region file instead of its own file
+	 */
+	public JsonConfiguration(ShopChunk chunk, boolean regionStorage) {
+		gson = GsonProcessor.getGson();
 		configType = 0;
-		ShopChunk chunk = new ShopChunk(c);
+		this.chunk = chunk;
 		this.pluginFolder = plugin.getDataFolder().getAbsolutePath();
-		this.path = this.pluginFolder + File.separator + "Data" + File.separator + chunk.getWorld().getName();
+		this.filePath = getWorldFolder(chunk.getWorldName());
+		this.path = filePath.getAbsolutePath();
 		this.file = new File(path + File.separator + chunk.serialize() + ".json");
-		this.filePath = new File(path);
-		this.filePath.mkdirs();
-		if (!this.file.exists()) {
-			try {
-				this.file.createNewFile();
-			} catch (Exception exception) {
-				throw new RuntimeException(exception);
-			}
-		}
 
-		loadContents();
+		if (regionStorage)
+			region = RegionFile.get(filePath, chunk.getX(), chunk.getZ());
 	}
 
 	public JsonConfiguration(UUID uuid) {
-		gson = new GsonBuilder().enableComplexMapKeySerialization().setPrettyPrinting().serializeNulls().create();
+		gson = GsonProcessor.getGson();
 		configType = 1;
 		this.pluginFolder = plugin.getDataFolder().getAbsolutePath();
 		this.path = this.pluginFolder + File.separator + "Data" + File.separator + "Players";
 		this.file = new File(path + File.separator + uuid.toString() + ".json");
 		this.filePath = new File(path);
-		this.filePath.mkdirs();
-		if (!this.file.exists()) {
+
+	}
+
+	/**
+	 * Returns the folder holding the chunk files of a world, the folder is not created if it is missing
+	 *
+	 * @param worldName name of the world
+	 * @return folder of the worlds chunk files
+	 */
+	public static File getWorldFolder(String worldName) {
+		return new File(Bukkit.getPluginManager().getPlugin("TradeShop").getDataFolder().getAbsolutePath() + File.separator + "Data" + File.separator + worldName);
+	}
+
+	private JsonObject getContents() {
+		// Contents are only read once needed so that writing a file never has to read it first
+		if (jsonObj == null)
+			loadContents();
+
+		return jsonObj;
+	}
+
+	private void loadContents() {
+		if (region != null) {
+			String data = region.read(chunk.getX(), chunk.getZ());
 			try {
-				this.file.createNewFile();
-			} catch (Exception exception) {
-				throw new RuntimeException(exception);
+				jsonObj = data == null ? new JsonObject() : new JsonParser().parse(data).getAsJsonObject();
+			} catch (IllegalStateException e) {
+				jsonObj = new JsonObject();
 			}
+			return;
 		}
 
-		loadContents();
-	}
+		// Lookups must not leave files behind, a missing file is treated the same as an empty one
+		if (!file.exists()) {
+			jsonObj = new JsonObject();
+			return;
+		}
 
-	private void loadContents() {
-		try {
-			jsonObj = new JsonParser().parse(new FileReader(file)).getAsJsonObject();
-		} catch (FileNotFoundException e) {
+		try (FileReader reader = new FileReader(file)) {
+			jsonObj = new JsonParser().parse(reader).getAsJsonObject();
+		} catch (IOException e) {
 			throw new RuntimeException(e);
 		} catch (IllegalStateException e) {
 			jsonObj = new JsonObject();
 		}
 	}
 
-	private void saveContents(String str) {
+	/**
+	 * Opens a streaming reader on the stored contents without parsing them
+	 *
+	 * @return JsonReader positioned before the root object or null if nothing is stored
+	 */
+	private JsonReader openReader() throws IOException {
+		if (region != null) {
+			String data = region.read(chunk.getX(), chunk.getZ());
+			return data == null ? null : new JsonReader(new StringReader(data));
+		}
+
+		if (!file.exists())
+			return null;
+
+		return new JsonReader(new BufferedReader(new FileReader(file)));
+	}
+
+	/**
+	 * Reads a single top level entry by streaming over the contents, every other entry is skipped without being parsed
+	 *
+	 * @param key name of the entry
+	 * @return the entry or null if it does not exist
+	 */
+	private JsonObject readEntry(String key) {
+		if (jsonObj != null)
+			return jsonObj.has(key) ? jsonObj.getAsJsonObject(key) : null;
+
+		try (JsonReader reader = openReader()) {
+			if (reader == null)
+				return null;
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				if (reader.nextName().equals(key))
+					return new JsonParser().parse(reader).getAsJsonObject();
+
+				reader.skipValue();
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalStateException ignored) {
+		}
+
+		return null;
+	}
+
+	public void saveContents(String str) {
+		if (region != null) {
+			region.write(chunk.getX(), chunk.getZ(), str);
+			return;
+		}
+
 		try {
+			filePath.mkdirs();
 			FileWriter fileWriter = new FileWriter(this.file);
 			fileWriter.write(str);
 			fileWriter.flush();
@@ -117,8 +209,6 @@ public class JsonConfiguration extends Utils implements Serializable {
 		} catch (Exception e) {
 			throw new RuntimeException(e);
 		}
-
-		loadContents();
 	}
 
 	public void savePlayer(Map<String, Integer> data) {
@@ -126,9 +216,9 @@ public class JsonConfiguration extends Utils implements Serializable {
 			return;
 
 		JsonElement obj = gson.toJsonTree(data);
-		jsonObj.add("data", obj);
+		getContents().add("data", obj);
 
-		saveContents(gson.toJson(jsonObj));
+		saveContents(gson.toJson(getContents()));
 	}
 
 	public void removePlayer() {
@@ -142,11 +232,10 @@ public class JsonConfiguration extends Utils implements Serializable {
 		if (configType != 1)
 			return null;
 
-		Gson gson = new Gson();
 		Map<String, Integer> data;
 
-		if (jsonObj.has("data")) {
-			data = gson.fromJson(jsonObj.get("data"), new TypeToken<Map<String, Integer>>() {
+		if (getContents().has("data")) {
+			data = gson.fromJson(getContents().get("data"), new TypeToken<Map<String, Integer>>() {
 			}.getType());
 		} else {
 			data = new HashMap<>();
@@ -159,54 +248,151 @@ public class JsonConfiguration extends Utils implements Serializable {
 		if (configType != 0)
 			return;
 
-		jsonObj.add(shop.getShopLocationAsSL().serialize(), gson.toJsonTree(shop));
+		getContents().add(shop.getShopLocationAsSL().serialize(), gson.toJsonTree(shop));
 
-		saveContents(gson.toJson(jsonObj));
+		saveContents(gson.toJson(getContents()));
 	}
 
 	public void removeShop(ShopLocation loc) {
 		if (configType != 0)
 			return;
 
-		if (jsonObj.has(loc.serialize())) {
-			jsonObj.remove(loc.serialize());
+		if (getContents().has(loc.serialize())) {
+			getContents().remove(loc.serialize());
 		}
 
-		saveContents(gson.toJson(jsonObj));
+		if (getContents().entrySet().isEmpty())
+			deleteFile();
+		else
+			saveContents(gson.toJson(getContents()));
+	}
+
+	/**
+	 * Deletes the file if it exists, used instead of writing a chunk file without any shops
+	 */
+	public void deleteFile() {
+		if (region != null) {
+			region.delete(chunk.getX(), chunk.getZ());
+			return;
+		}
+
+		if (file.exists() && !file.delete()) {
+			throw new RuntimeException("Could not delete " + file.getAbsolutePath());
+		}
 	}
 
 	public Shop loadShop(ShopLocation loc) {
 		if (configType != 0)
 			return null;
 
-		Gson gson = new GsonBuilder().setPrettyPrinting().serializeNulls().create();
+		String key = loc.serialize();
+		JsonObject entry = readEntry(key);
+
+		if (entry == null)
+			return null;
+
+		// Legacy entries are fixed in the full contents so that the fix can be written back
+		if (entry.has("productB64") || entry.has("costB64"))
+			return loadShop(key);
+
+		return gson.fromJson(entry, Shop.class);
+	}
+
+	private Shop loadShop(String key) {
 		Shop shop;
 
-		if (jsonObj.has(loc.serialize())) {
-			if (jsonObj.getAsJsonObject(loc.serialize()).getAsJsonPrimitive("productB64") != null) {
-				String str = jsonObj.getAsJsonObject(loc.serialize()).get("productB64").getAsString();
-				jsonObj.getAsJsonObject(loc.serialize()).remove("productB64");
-				jsonObj.getAsJsonObject(loc.serialize()).add("productListB64", gson.toJsonTree(b64OverstackFixer(str)));
-				saveContents(gson.toJson(jsonObj));
+		if (getContents().has(key)) {
+			if (getContents().getAsJsonObject(key).getAsJsonPrimitive("productB64") != null) {
+				String str = getContents().getAsJsonObject(key).get("productB64").getAsString();
+				getContents().getAsJsonObject(key).remove("productB64");
+				getContents().getAsJsonObject(key).add("productListB64", gson.toJsonTree(b64OverstackFixer(str)));
+				saveContents(gson.toJson(getContents()));
 			}
 
-			if (jsonObj.getAsJsonObject(loc.serialize()).getAsJsonPrimitive("costB64") != null) {
-				String str = jsonObj.getAsJsonObject(loc.serialize()).get("costB64").getAsString();
-				jsonObj.getAsJsonObject(loc.serialize()).remove("costB64");
-				jsonObj.getAsJsonObject(loc.serialize()).add("costListB64", gson.toJsonTree(b64OverstackFixer(str)));
-				saveContents(gson.toJson(jsonObj));
+			if (getContents().getAsJsonObject(key).getAsJsonPrimitive("costB64") != null) {
+				String str = getContents().getAsJsonObject(key).get("costB64").getAsString();
+				getContents().getAsJsonObject(key).remove("costB64");
+				getContents().getAsJsonObject(key).add("costListB64", gson.toJsonTree(b64OverstackFixer(str)));
+				saveContents(gson.toJson(getContents()));
 			}
-			shop = gson.fromJson(jsonObj.get(loc.serialize()), Shop.class);
+			shop = gson.fromJson(getContents().get(key), Shop.class);
 		} else {
 			return null;
 		}
 
-		shop.fixAfterLoad();
 		return shop;
 	}
 
+	/**
+	 * Loads every shop stored in this chunk file
+	 *
+	 * @return Map of serialized sign locations to their Shop
+	 */
+	public Map<String, Shop> loadShops() {
+		Map<String, Shop> shops = new HashMap<>();
+
+		if (configType != 0)
+			return shops;
+
+		List<String> keys = new ArrayList<>();
+		for (Map.Entry<String, JsonElement> entry : getContents().entrySet()) {
+			keys.add(entry.getKey());
+		}
+
+		for (String key : keys) {
+			Shop shop = loadShop(key);
+			if (shop != null)
+				shops.put(key, shop);
+		}
+
+		return shops;
+	}
+
+	/**
+	 * Replaces the contents of this chunk file with the shops, the existing contents are never read
+	 *
+	 * @param records every shop in the chunk
+	 */
+	public void saveShops(Collection<ShopRecord> records) {
+		if (configType != 0)
+			return;
+
+		JsonObject contents = new JsonObject();
+		for (ShopRecord record : records) {
+			contents.add(record.getLocation(), record.getData());
+		}
+
+		jsonObj = contents;
+		saveContents(gson.toJson(contents));
+	}
+
+	/**
+	 * Counts the shops in this chunk file by streaming over it, the shops themselves are skipped without being parsed
+	 *
+	 * @return amount of shops in the chunk
+	 */
 	public int getShopCount() {
-		return jsonObj.size();
+		if (jsonObj != null)
+			return jsonObj.size();
+
+		int count = 0;
+		try (JsonReader reader = openReader()) {
+			if (reader == null)
+				return 0;
+
+			reader.beginObject();
+			while (reader.hasNext()) {
+				reader.nextName();
+				reader.skipValue();
+				count++;
+			}
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		} catch (IllegalStateException e) {
+			return 0;
+		}
+
+		return count;
 	}
 
 	private List<String> b64OverstackFixer(String oldB64) {
@@ -36,16 +36,17 @@ import org.bukkit.event.block.SignChangeEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.inventory.Inventory;
 import org.bukkit.inventory.ItemStack;
-import org.bukkit.inventory.meta.ItemMeta;
-import org.bukkit.material.MaterialData;
 import org.bukkit.plugin.PluginDescriptionFile;
 import org.shanerx.tradeshop.TradeShop;
-import org.shanerx.tradeshop.enumys.DebugLevels;
 import org.shanerx.tradeshop.enumys.ExchangeStatus;
 import org.shanerx.tradeshop.enumys.Message;
 import org.shanerx.tradeshop.enumys.ShopType;
 import org.shanerx.tradeshop.objects.Debug;
 import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.utils.trade.InventoryPlan;
+import org.shanerx.tradeshop.utils.trade.ItemKey;
+import org.shanerx.tradeshop.utils.trade.TradePlan;
+import org.shanerx.tradeshop.utils.trade.TradePlanner;
 
 import java.util.*;
 import java.util.logging.Level;
@@ -135,31 +136,16 @@ public class Utils {
 	}
 
 	/**
-	 * Returns true itemStacks are equal excluding amount.
+	 * Returns true itemStacks are equal excluding amount, neither item is changed.
+	 * <br>
+	 * An item without meta matches any item of the same material.
 	 *
 	 * @param itm1 the first item
 	 * @param itm2 the ssecond item
 	 * @return true if it args are equal.
 	 */
 	public boolean itemCheck(ItemStack itm1, ItemStack itm2) {
-		int i1 = itm1.getAmount(), i2 = itm2.getAmount();
-		ItemMeta temp1 = itm1.getItemMeta();
-		MaterialData temp11 = itm1.getData();
-		boolean ret;
-		itm1.setAmount(1);
-		itm2.setAmount(1);
-
-		if (!itm1.hasItemMeta() && itm2.hasItemMeta()) {
-			itm1.setItemMeta(itm2.getItemMeta());
-			itm1.setData(itm2.getData());
-		}
-		ret = itm1.equals(itm2);
-
-		itm1.setItemMeta(temp1);
-		itm1.setData(temp11);
-		itm1.setAmount(i1);
-		itm2.setAmount(i2);
-		return ret;
+		return ItemKey.matches(itm1, itm2);
 	}
 
 	/**
@@ -177,13 +163,14 @@ public class Utils {
 				removed = 0,
 				amtIn = itmIn.getAmount(),
 				amtOut = itmOut.getAmount();
+		ItemKey keyIn = ItemKey.of(itmIn), keyOut = ItemKey.of(itmOut);
 
 		for (ItemStack i : inv.getContents()) {
 			if (i != null) {
-				if (itemCheck(itmIn, i)) {
+				if (keyIn.matches(i)) {
 					count += i.getAmount();
 					slots++;
-				} else if (itemCheck(itmOut, i) && amtOut != removed) {
+				} else if (amtOut != removed && keyOut.matches(i)) {
 
 					if (i.getAmount() > amtOut - removed) {
 						removed = amtOut;
@@ -258,16 +245,49 @@ public class Utils {
 	 */
 	public boolean containsAtLeast(ItemStack[] inv, ItemStack item, int amount) {
 		int count = 0;
+		ItemKey key = ItemKey.of(item);
 		for (ItemStack itm : inv) {
-			if (itm != null) {
-				if (itemCheck(item, itm)) {
-					count += itm.getAmount();
-				}
+			if (key.matches(itm)) {
+				count += itm.getAmount();
 			}
 		}
 		return count >= amount;
 	}
 
+	/**
+	 * Returns how many inventory slots the items fill, items with more than a stack take several slots.
+	 *
+	 * @param items the items to count
+	 * @return the number of stacks
+	 */
+	public int countStacks(List<ItemStack> items) {
+		int stacks = 0;
+		for (ItemStack item : items) {
+			stacks += (item.getAmount() + item.getMaxStackSize() - 1) / item.getMaxStackSize();
+		}
+		return stacks;
+	}
+
+	/**
+	 * Splits the items into stacks of at most their max stack size, like they would fill inventory slots.
+	 *
+	 * @param items the items to split, they are not changed
+	 * @return the stacks in the order of the items
+	 */
+	public List<ItemStack> splitStacks(List<ItemStack> items) {
+		List<ItemStack> stacks = new ArrayList<>();
+		for (ItemStack item : items) {
+			int amount = item.getAmount();
+			while (amount > 0) {
+				ItemStack stack = item.clone();
+				stack.setAmount(Math.min(amount, item.getMaxStackSize()));
+				stacks.add(stack);
+				amount -= stack.getAmount();
+			}
+		}
+		return stacks;
+	}
+
 	/**
 	 * This function wraps up Bukkit's method {@code ChatColor.translateAlternateColorCodes('&', msg)}.
 	 * <br>
@@ -295,8 +315,8 @@ public class Utils {
 
 		for (BlockFace face : faces) {
 			Block relative = chest.getRelative(face);
-			if (ShopType.isShop(relative)) {
-				return (Sign) relative.getState();
+			if (plugin.getShopIndex().mayBeShop(relative) && ShopType.isShop(relative)) {
+				return (Sign) BlockStates.read(relative);
 			} else if (flatFaces.contains(face) && (chest.getType().equals(Material.CHEST) || chest.getType().equals(Material.TRAPPED_CHEST))) {
 				if (relative.getType().equals(chest.getType())) {
 					isDouble = true;
@@ -309,8 +329,8 @@ public class Utils {
 			chest = chest.getRelative(doubleSide);
 			for (BlockFace face : faces) {
 				Block relative = chest.getRelative(face);
-				if (ShopType.isShop(relative)) {
-					return (Sign) relative.getState();
+				if (plugin.getShopIndex().mayBeShop(relative) && ShopType.isShop(relative)) {
+					return (Sign) BlockStates.read(relative);
 				}
 			}
 		}
@@ -375,52 +395,17 @@ public class Utils {
      * @return true if shop has enough cost to make trade
      */
     public Boolean checkInventory(Inventory inv, ItemStack item, int multiplier) {
-        Inventory clone = Bukkit.createInventory(null, inv.getStorageContents().length);
-        clone.setContents(inv.getStorageContents().clone());
         if (multiplier < 1)
             multiplier = 1;
 
-        int count = item.getAmount() * multiplier, removed;
-        while (count > 0) {
-            boolean resetItem = false;
-            int inventoryLoc = clone.first(item.getType());
-
-            if (inventoryLoc == -1)
-                break;
-
-            ItemStack temp = clone.getItem(inventoryLoc),
-                    dupitm1 = item.clone();
+        InventoryPlan plan = InventoryPlan.acquire(inv.getStorageContents());
 
-            if (count > item.getMaxStackSize()) {
-                removed = item.getMaxStackSize();
-            } else {
-                removed = count;
-            }
-
-            if (removed > temp.getAmount()) {
-                removed = temp.getAmount();
-            }
-
-            item.setAmount(removed);
-            if (!item.hasItemMeta() && temp.hasItemMeta()) {
-                item.setItemMeta(temp.getItemMeta());
-                item.setData(temp.getData());
-                resetItem = true;
-            }
-
-            clone.removeItem(item);
-
-            if (resetItem) {
-                item = dupitm1;
-            }
-
-            count -= removed;
+        try {
+            return plan.take(Collections.singletonList(ItemKey.of(item)), multiplier, null) < 0;
+        } finally {
+            plan.release();
         }
-
-        return count == 0;
     }
-	
-	
 
 	/**
 	 * Checks whether a trade can take place.
@@ -433,145 +418,19 @@ public class Utils {
      * @return 0 if both inventories have enough room, 1 if player is too full, and -1 if the shop is too full
 	 */
     public ExchangeStatus canExchangeAll(Shop shop, Inventory playerInv, int multiplier, Action action) {
-        Inventory playerInventory = Bukkit.createInventory(null, playerInv.getStorageContents().length);
-        playerInventory.setContents(playerInv.getStorageContents().clone());
-
-        Inventory shopInv = shop.getChestAsSC().getInventory();
-        Inventory shopInventory = Bukkit.createInventory(null, shopInv.getStorageContents().length);
-        shopInventory.setContents(shopInv.getStorageContents().clone());
-
-        ArrayList<ItemStack> costItems = new ArrayList<>(), productItems = new ArrayList<>();
-
-        if (shop.getShopType() == ShopType.ITRADE) { //ITrade trade
-
-            //Method to find Cost items in player inventory and add to cost array
-            costItems = getItems(playerInventory, shop.getCost(), multiplier);
-            if (costItems.get(0) == null) {
-                return ExchangeStatus.PLAYER_NO_COST;
-            }
-
-            for (ItemStack item : costItems) {
-                playerInventory.removeItem(item);
-            }
-
-            for (ItemStack item : shop.getProduct()) {
-                if (playerInventory.addItem(item).isEmpty()) {
-                    return ExchangeStatus.PLAYER_NO_SPACE;
-                }
-            }
-
-            return ExchangeStatus.SUCCESS; //Successfully completed trade
-        } else if (shop.getShopType() == ShopType.BITRADE && action == Action.LEFT_CLICK_BLOCK) { //BiTrade Reversed Trade
-
-            //Method to find Cost items in player inventory and add to cost array
-            costItems = getItems(playerInventory, shop.getProduct(), multiplier); //Reverse BiTrade, Product is Cost
-            if (costItems.get(0) == null) {
-                return ExchangeStatus.PLAYER_NO_COST;
-            }
-
-            //Method to find Product items in shop inventory and add to product array
-            productItems = getItems(shopInventory, shop.getCost(), multiplier); //Reverse BiTrade, Cost is Product
-            if (productItems.get(0) == null) {
-                shop.updateStatus();
-                return ExchangeStatus.SHOP_NO_PRODUCT;
-            }
-        } else { // Normal Trade
-
-            //Method to find Cost items in player inventory and add to cost array
-            costItems = getItems(playerInventory, shop.getCost(), multiplier);
-            if (costItems.get(0) == null) {
-                return ExchangeStatus.PLAYER_NO_COST;
-            }
-
-            //Method to find Product items in shop inventory and add to product array
-            productItems = getItems(shopInventory, shop.getProduct(), multiplier);
-            if (productItems.get(0) == null) {
-                shop.updateStatus();
-                return ExchangeStatus.SHOP_NO_PRODUCT;
-            }
-
+        Inventory shopInv = shop.getShopType() == ShopType.ITRADE ? null : shop.getChestAsSC().getInventory();
+        TradePlan plan = TradePlanner.plan(shop, playerInv, shopInv, multiplier, action);
+        ExchangeStatus status;
+
+        try {
+            status = plan.getStatus();
+        } finally {
+            plan.release();
         }
 
-        //For loop to remove cost items from player inventory
-        for (ItemStack item : costItems) {
-            playerInventory.removeItem(item);
-        }
-
-        //For loop to remove product items from shop inventory
-        for (ItemStack item : productItems) {
-            shopInventory.removeItem(item);
-        }
+        if (status == ExchangeStatus.SHOP_NO_PRODUCT)
+            shop.updateStatus();
 
-        //For loop to put cost items in shop inventory
-        for (ItemStack item : costItems) {
-            if (!shopInventory.addItem(item).isEmpty()) {
-                return ExchangeStatus.SHOP_NO_SPACE;
-            }
-        }
-
-        //For loop to put product items in player inventory
-        for (ItemStack item : productItems) {
-            if (!playerInventory.addItem(item).isEmpty()) {
-                return ExchangeStatus.PLAYER_NO_SPACE;
-            }
-        }
-
-        return ExchangeStatus.SUCCESS; //Successfully completed trade
-	}
-
-    //Returns an arraylist of the itemstacks to be removed/added, if it could not get enough of an item, will return index 0 as null and index 1 as item it could not get enough of
-    public ArrayList<ItemStack> getItems(Inventory inventory, List<ItemStack> items, int multiplier) {
-        Inventory clone = Bukkit.createInventory(null, inventory.getStorageContents().length);
-        clone.setContents(inventory.getStorageContents());
-        ArrayList<ItemStack> ret = new ArrayList<ItemStack>();
-        debugger.log("ShopTradeListener > Inventory Type Being Searched: " + inventory.getType().name(), DebugLevels.TRADE);
-
-        for (ItemStack item : items) {
-            int count = item.getAmount() * multiplier, maxStack, traded;
-
-            debugger.log("ShopTradeListener > Item Material Being Searched for: " + item.getType().name(), DebugLevels.TRADE);
-            debugger.log("ShopTradeListener > Item count: " + count, DebugLevels.TRADE);
-
-            while (count > 0) {
-                boolean resetItem = false;
-                int inventoryLoc = clone.first(item.getType());
-                debugger.log("ShopTradeListener > Item inventory location: " + inventoryLoc, DebugLevels.TRADE);
-
-                if (inventoryLoc == -1)
-                    break;
-                ItemStack temp = clone.getItem(inventoryLoc),
-                        dupitm1 = item.clone();
-                maxStack = dupitm1.getMaxStackSize();
-
-                if (count > maxStack)
-                    traded = temp.getAmount() < maxStack ? temp.getAmount() : maxStack;
-                else
-                    traded = temp.getAmount() < count ? temp.getAmount() : count;
-
-                dupitm1.setAmount(traded);
-                if (!dupitm1.hasItemMeta() && temp.hasItemMeta()) {
-                    dupitm1.setItemMeta(temp.getItemMeta());
-                    dupitm1.setData(temp.getData());
-                }
-
-                clone.removeItem(dupitm1);
-                ret.add(dupitm1);
-                debugger.log("ShopTradeListener > Item traded: " + traded, DebugLevels.TRADE);
-
-                count -= traded;
-
-                debugger.log("ShopTradeListener > Item new count: " + count, DebugLevels.TRADE);
-            }
-
-            if (count > 0) {
-                debugger.log("ShopTradeListener > Count > 0: " + count, DebugLevels.TRADE);
-                ret.clear();
-                ret.add(0, null);
-                ret.add(1, item);
-                ret.get(1).setAmount(item.getAmount() * multiplier);
-            }
-        }
-
-        return ret;
+        return status;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,155 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.inventory.ItemStack;
+import org.shanerx.tradeshop.enumys.DebugLevels;
+import org.shanerx.tradeshop.enumys.Setting;
+import org.shanerx.tradeshop.utils.ItemSerializer;
+import org.shanerx.tradeshop.utils.Utils;
+
+import java.io.IOException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Keeps decoded items by their serialized form so that shops selling the same item only decode it once.
+ * <p>
+ * The cached items are templates that are never handed out, callers always get a copy. The cache is bounded
+ * by the length of the serialized forms it holds and drops the least recently used items first.
+ * </p>
+ * <p>
+ * Safe to use from any thread.
+ * </p>
+ */
+public class ItemTemplateCache extends Utils {
+
+	private final Map<String, ItemStack> templates = new LinkedHashMap<>(64, 0.75f, true);
+	private long maxSize, size;
+	private long hits, misses, evictions;
+
+	public ItemTemplateCache() {
+		reload();
+	}
+
+	/**
+	 * Returns a copy of the item the data decodes to, only decoding it if it is not cached
+	 *
+	 * @param data Base64 string of the item
+	 * @return a new copy of the decoded item
+	 * @throws IOException if the item could not be decoded
+	 */
+	public ItemStack decode(String data) throws IOException {
+		ItemStack template;
+
+		synchronized (this) {
+			template = templates.get(data);
+
+			if (template != null) {
+				hits++;
+				return template.clone();
+			}
+
+			misses++;
+		}
+
+		template = ItemSerializer.itemStackArrayFromBase64(data);
+
+		synchronized (this) {
+			if (data.length() <= maxSize && templates.put(data, template) == null) {
+				size += data.length();
+				trim();
+			}
+		}
+
+		return template.clone();
+	}
+
+	/**
+	 * Reads the size limit from the config and drops all cached items
+	 */
+	public synchronized void reload() {
+		if (hits + misses > 0)
+			debugger.log("Item template cache: " + getStats(), DebugLevels.STARTUP);
+
+		maxSize = Math.max(0, Setting.ITEM_CACHE_SIZE.getInt()) * 1024L;
+		templates.clear();
+		size = 0;
+	}
+
+	public synchronized long getHits() {
+		return hits;
+	}
+
+	public synchronized long getMisses() {
+		return misses;
+	}
+
+	public synchronized long getEvictions() {
+		return evictions;
+	}
+
+	/**
+	 * Returns the number of cached items
+	 *
+	 * @return number of cached items
+	 */
+	public synchronized int getCount() {
+		return templates.size();
+	}
+
+	/**
+	 * Returns the total length of the serialized forms of all cached items
+	 *
+	 * @return size of the cache in characters
+	 */
+	public synchronized long getSize() {
+		return size;
+	}
+
+	/**
+	 * Returns a short summary of the cache usage
+	 *
+	 * @return summary of the cache usage
+	 */
+	public synchronized String getStats() {
+		long lookups = hits + misses;
+		return String.format("%d items, %d/%d KB, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+				templates.size(), size / 1024, maxSize / 1024, hits, misses,
+				lookups == 0 ? 0.0 : hits * 100.0 / lookups, evictions);
+	}
+
+	private void trim() {
+		Iterator<Map.Entry<String, ItemStack>> it = templates.entrySet().iterator();
+
+		while (size > maxSize && it.hasNext()) {
+			size -= it.next().getKey().length();
+			it.remove();
+			evictions++;
+		}
+	}
+}
@@ -0,0 +1,269 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Material;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.utils.JsonConfiguration;
+import org.shanerx.tradeshop.utils.Utils;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Stores shops in JSON, either one file per chunk or grouped into {@link RegionFile}s.
+ * <p>
+ * This store has no index, queries across shops read every chunk of every world.
+ * </p>
+ */
+public class JsonDataStore extends Utils implements ShopDataStore {
+
+	private final boolean regionStorage;
+
+	public JsonDataStore(boolean regionStorage) {
+		this.regionStorage = regionStorage;
+	}
+
+	@Override
+	public void open() {
+		if (!regionStorage) {
+			for (String worldName : getWorldNames()) {
+				int deleted = removeEmptyChunkFiles(worldName);
+				if (deleted > 0)
+					plugin.getLogger().info("Removed " + deleted + " empty shop data files from " + worldName + ".");
+			}
+
+			return;
+		}
+
+		for (String worldName : getWorldNames()) {
+			int converted = RegionConverter.convert(JsonConfiguration.getWorldFolder(worldName));
+			if (converted > 0)
+				plugin.getLogger().info("Converted " + converted + " chunk files of " + worldName + " to region storage.");
+		}
+	}
+
+	@Override
+	public void close() {
+		RegionFile.closeAll();
+	}
+
+	/**
+	 * Lists the chunk files of a world, empty files left behind by older versions are skipped
+	 */
+	@Override
+	public List<ShopChunk> getChunksWithData(String worldName) {
+		List<ShopChunk> chunks = new ArrayList<>();
+		File folder = JsonConfiguration.getWorldFolder(worldName);
+		File[] files = folder.listFiles();
+
+		if (files == null)
+			return chunks;
+
+		if (regionStorage) {
+			for (File file : files) {
+				RegionFile region = RegionFile.get(folder, file.getName());
+				if (region == null)
+					continue;
+
+				for (int[] coords : region.getStoredChunks()) {
+					chunks.add(new ShopChunk(worldName, coords[0], coords[1]));
+				}
+			}
+
+			return chunks;
+		}
+
+		for (File file : files) {
+			if (!isChunkFile(file) || isEmptyChunkFile(file))
+				continue;
+
+			String name = file.getName();
+			String[] parts = name.substring(0, name.length() - ".json".length()).split("_");
+
+			try {
+				chunks.add(new ShopChunk(worldName, Integer.parseInt(parts[parts.length - 2]), Integer.parseInt(parts[parts.length - 1])));
+			} catch (NumberFormatException ignored) {
+			}
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * Deletes the empty chunk files older versions created for every lookup, runs once while the store opens
+	 *
+	 * @param worldName name of the world to clean up
+	 * @return amount of deleted files
+	 */
+	int removeEmptyChunkFiles(String worldName) {
+		File[] files = JsonConfiguration.getWorldFolder(worldName).listFiles();
+		int deleted = 0;
+
+		if (files == null)
+			return deleted;
+
+		for (File file : files) {
+			if (isChunkFile(file) && isEmptyChunkFile(file) && file.delete())
+				deleted++;
+		}
+
+		return deleted;
+	}
+
+	private static boolean isChunkFile(File file) {
+		String name = file.getName();
+		return name.startsWith("c_") && name.endsWith(".json") && name.split("_").length >= 4;
+	}
+
+	private static boolean isEmptyChunkFile(File file) {
+		// "{}" is the longest content a chunk file without shops can have
+		return file.length() <= 2;
+	}
+
+	@Override
+	public Map<String, Shop> loadShops(ShopChunk chunk) {
+		return new JsonConfiguration(chunk, regionStorage).loadShops();
+	}
+
+	@Override
+	public Shop loadShop(ShopLocation loc) {
+		return new JsonConfiguration(new ShopChunk(loc), regionStorage).loadShop(loc);
+	}
+
+	@Override
+	public int getShopCount(ShopChunk chunk) {
+		return new JsonConfiguration(chunk, regionStorage).getShopCount();
+	}
+
+	@Override
+	public void saveShops(ShopChunk chunk, Collection<ShopRecord> records) {
+		JsonConfiguration config = new JsonConfiguration(chunk, regionStorage);
+
+		// A chunk without shops has its file deleted rather than written empty
+		if (records.isEmpty())
+			config.deleteFile();
+		else
+			config.saveShops(records);
+	}
+
+	@Override
+	public List<String> findByOwner(UUID owner) {
+		// Compared with the stored UUID, looking the player up is not safe off the main thread
+		String uuid = owner.toString();
+		return find(shop -> shop.getOwner() != null && uuid.equalsIgnoreCase(shop.getOwner().getUUIDString()));
+	}
+
+	@Override
+	public List<String> findByStatus(ShopStatus status) {
+		return find(shop -> shop.getStatus() == status);
+	}
+
+	@Override
+	public List<String> findByItem(Material material) {
+		// Materials are stored with the item lines, the items are not decoded
+		return find(shop -> shop.getMaterials().contains(material));
+	}
+
+	@Override
+	public Map<String, Integer> loadPlayer(UUID uuid) {
+		return new JsonConfiguration(uuid).loadPlayer();
+	}
+
+	@Override
+	public void savePlayer(UUID uuid, Map<String, Integer> data) {
+		new JsonConfiguration(uuid).savePlayer(data);
+	}
+
+	/**
+	 * Returns the names of all worlds that have a data folder
+	 *
+	 * @return List of world names
+	 */
+	List<String> getWorldNames() {
+		List<String> worldNames = new ArrayList<>();
+		File[] worldFolders = new File(plugin.getDataFolder(), "Data").listFiles(File::isDirectory);
+
+		if (worldFolders != null) {
+			for (File worldFolder : worldFolders) {
+				if (!worldFolder.getName().equals("Players"))
+					worldNames.add(worldFolder.getName());
+			}
+		}
+
+		return worldNames;
+	}
+
+	/**
+	 * Returns the UUIDs of all players that have a data file
+	 *
+	 * @return List of player UUIDs
+	 */
+	List<UUID> getStoredPlayers() {
+		List<UUID> players = new ArrayList<>();
+		File[] files = new File(plugin.getDataFolder(), "Data" + File.separator + "Players").listFiles();
+
+		if (files == null)
+			return players;
+
+		for (File file : files) {
+			String name = file.getName();
+			if (!name.endsWith(".json"))
+				continue;
+
+			try {
+				players.add(UUID.fromString(name.substring(0, name.length() - ".json".length())));
+			} catch (IllegalArgumentException ignored) {
+			}
+		}
+
+		return players;
+	}
+
+	private List<String> find(Predicate<Shop> filter) {
+		List<String> found = new ArrayList<>();
+
+		for (String worldName : getWorldNames()) {
+			for (ShopChunk chunk : getChunksWithData(worldName)) {
+				for (Map.Entry<String, Shop> entry : loadShops(chunk).entrySet()) {
+					if (filter.test(entry.getValue()))
+						found.add(entry.getKey());
+				}
+			}
+		}
+
+		return found;
+	}
+}
@@ -0,0 +1,161 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+/**
+ * Open addressing hash map from primitive long keys to primitive int values.
+ * <p>
+ * Uses linear probing, removals shift the following entries back so no tombstones are left behind.
+ * Not thread safe.
+ * </p>
+ */
+final class LongIntMap {
+
+	private long[] keys;
+	private int[] values;
+	private boolean[] used;
+	private int size, mask;
+
+	LongIntMap() {
+		allocate(16);
+	}
+
+	int size() {
+		return size;
+	}
+
+	boolean containsKey(long key) {
+		return find(key) >= 0;
+	}
+
+	/**
+	 * Returns the value of the key
+	 *
+	 * @param key    key to look up
+	 * @param absent value returned if the key is not in the map
+	 * @return the value or absent
+	 */
+	int get(long key, int absent) {
+		int slot = find(key);
+		return slot < 0 ? absent : values[slot];
+	}
+
+	void put(long key, int value) {
+		int slot = slot(key);
+
+		while (used[slot]) {
+			if (keys[slot] == key) {
+				values[slot] = value;
+				return;
+			}
+
+			slot = (slot + 1) & mask;
+		}
+
+		used[slot] = true;
+		keys[slot] = key;
+		values[slot] = value;
+
+		if (++size * 2 > keys.length)
+			allocate(keys.length * 2);
+	}
+
+	/**
+	 * Adds to the value of the key, the key is removed once its value is 0
+	 *
+	 * @param key   key to change
+	 * @param delta amount to add, missing keys start at 0
+	 */
+	void add(long key, int delta) {
+		int value = get(key, 0) + delta;
+
+		if (value == 0)
+			remove(key);
+		else
+			put(key, value);
+	}
+
+	void remove(long key) {
+		int slot = find(key);
+
+		if (slot < 0)
+			return;
+
+		used[slot] = false;
+		size--;
+
+		// Moves entries that probed past the freed slot back so lookups still find them
+		for (int next = (slot + 1) & mask; used[next]; next = (next + 1) & mask) {
+			int home = slot(keys[next]);
+
+			if (slot <= next ? (home <= slot || home > next) : (home <= slot && home > next)) {
+				used[slot] = true;
+				keys[slot] = keys[next];
+				values[slot] = values[next];
+				used[next] = false;
+				slot = next;
+			}
+		}
+	}
+
+	void clear() {
+		allocate(16);
+	}
+
+	private int find(long key) {
+		for (int slot = slot(key); used[slot]; slot = (slot + 1) & mask) {
+			if (keys[slot] == key)
+				return slot;
+		}
+
+		return -1;
+	}
+
+	private int slot(long key) {
+		long hash = key * 0x9E3779B97F4A7C15L;
+		return (int) (hash ^ (hash >>> 32)) & mask;
+	}
+
+	private void allocate(int capacity) {
+		long[] oldKeys = keys;
+		int[] oldValues = values;
+		boolean[] oldUsed = used;
+
+		keys = new long[capacity];
+		values = new int[capacity];
+		used = new boolean[capacity];
+		mask = capacity - 1;
+		size = 0;
+
+		if (oldUsed != null && capacity > oldUsed.length) {
+			for (int i = 0; i < oldUsed.length; i++) {
+				if (oldUsed[i])
+					put(oldKeys[i], oldValues[i]);
+			}
+		}
+	}
+}
@@ -0,0 +1,175 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.shanerx.tradeshop.enumys.Setting;
+import org.shanerx.tradeshop.objects.PlayerSettings;
+import org.shanerx.tradeshop.utils.Utils;
+
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Level;
+
+/**
+ * Keeps the {@link PlayerSettings} of online players in memory.
+ * <p>
+ * Settings are loaded in the background when a player joins and only written when they
+ * changed, either by the periodic flush or when the player quits. Loads and writes share
+ * a single thread so a load never sees data older than a pending write, settings needed before
+ * their load finished are taken from a pending write if there is one.
+ * </p>
+ */
+public class PlayerSettingsCache extends Utils {
+
+	private final ShopDataStore store;
+	private final Map<UUID, PlayerSettings> settings = new ConcurrentHashMap<>();
+	private final Map<UUID, Map<String, Integer>> pending = new ConcurrentHashMap<>();
+	private final ExecutorService worker = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "TradeShop Player Data");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private BukkitTask flushTask;
+
+	public PlayerSettingsCache(ShopDataStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Starts the repeating task that writes changed settings to the store
+	 */
+	public void start() {
+		long interval = Math.max(1, Setting.DATA_FLUSH_INTERVAL.getInt()) * 20L;
+		flushTask = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, interval, interval);
+	}
+
+	/**
+	 * Writes all changed settings and stops the background worker, should only be used while the plugin is disabling
+	 */
+	public void shutdown() {
+		if (flushTask != null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+
+		flush();
+		worker.shutdown();
+
+		try {
+			if (!worker.awaitTermination(30, TimeUnit.SECONDS)) {
+				plugin.getLogger().warning("Timed out while saving player data!");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Loads the settings of a joining player in the background
+	 *
+	 * @param uuid UUID of the player
+	 */
+	public void load(UUID uuid) {
+		worker.execute(() -> {
+			PlayerSettings loaded;
+			try {
+				loaded = new PlayerSettings(uuid, store.loadPlayer(uuid));
+			} catch (RuntimeException e) {
+				plugin.getLogger().log(Level.SEVERE, "Could not load player data for " + uuid + "!", e);
+				return;
+			}
+
+			// Only kept if the player is still online, get() loads the settings itself if they are needed earlier
+			Bukkit.getScheduler().runTask(plugin, () -> {
+				if (Bukkit.getPlayer(uuid) != null)
+					settings.putIfAbsent(uuid, loaded);
+			});
+		});
+	}
+
+	/**
+	 * Returns the settings of the player, loading them now if the background load has not finished
+	 *
+	 * @param uuid UUID of the player
+	 * @return the players settings
+	 */
+	public PlayerSettings get(UUID uuid) {
+		PlayerSettings cached = settings.get(uuid);
+		if (cached != null)
+			return cached;
+
+		// A write that has not finished yet holds newer data than the store
+		Map<String, Integer> unwritten = pending.get(uuid);
+		return settings.computeIfAbsent(uuid, key -> new PlayerSettings(key, unwritten != null ? unwritten : store.loadPlayer(key)));
+	}
+
+	/**
+	 * Removes the settings of a player that quit, writing them if they changed
+	 *
+	 * @param uuid UUID of the player
+	 */
+	public void unload(UUID uuid) {
+		PlayerSettings removed = settings.remove(uuid);
+
+		if (removed != null)
+			save(removed);
+	}
+
+	/**
+	 * Passes every changed setting to the background worker, must be called from the main thread
+	 */
+	public void flush() {
+		for (PlayerSettings playerSettings : settings.values()) {
+			save(playerSettings);
+		}
+	}
+
+	private void save(PlayerSettings playerSettings) {
+		if (!playerSettings.isDirty())
+			return;
+
+		UUID uuid = playerSettings.getUuid();
+		Map<String, Integer> data = playerSettings.snapshot();
+
+		pending.put(uuid, data);
+		worker.execute(() -> {
+			try {
+				store.savePlayer(uuid, data);
+			} catch (RuntimeException e) {
+				plugin.getLogger().log(Level.SEVERE, "Could not save player data for " + uuid + "!", e);
+			} finally {
+				pending.remove(uuid, data);
+			}
+		});
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils.data;
+
+import com.google.gson.Gson;
+import com.google.gson.JsonParseException;
+import com.google.gson.JsonParser;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+/**
+ * One-shot conversion of a world's per-chunk JSON files into region files.
+ */
+public class RegionConverter {
+
+	public static final String LEGACY_FOLDER = "legacy";
+
+	/**
+	 * Moves the data of every chunk file in the folder into its region file.
+	 * Converted chunk files are kept in a "legacy" sub folder so they are no longer read.
+	 *
+	 * @param worldFolder folder holding the worlds data
+	 * @return amount of chunk files converted
+	 */
+	public static int convert(File worldFolder) {
+		File[] files = worldFolder.listFiles();
+		File legacyFolder = new File(worldFolder, LEGACY_FOLDER);
+		Gson gson = GsonProcessor.getGson();
+		int converted = 0;
+
+		if (files == null)
+			return 0;
+
+		for (File file : files) {
+			String name = file.getName();
+			if (!file.isFile() || !name.startsWith("c_") || !name.endsWith(".json"))
+				continue;
+
+			String[] parts = name.substring(0, name.length() - ".json".length()).split("_");
+			if (parts.length < 4)
+				continue;
+
+			try {
+				int x = Integer.parseInt(parts[parts.length - 2]), z = Integer.parseInt(parts[parts.length - 1]);
+				String contents = new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8).trim();
+
+				if (contents.length() > 2) {
+					RegionFile.get(worldFolder, x, z).write(x, z, gson.toJson(new JsonParser().parse(contents)));
+				}
+
+				legacyFolder.mkdirs();
+				if (!file.renameTo(new File(legacyFolder, name)))
+					file.delete();
+
+				converted++;
+			} catch (NumberFormatException | IOException | JsonParseException e) {
+				throw new RuntimeException("Could not convert " + file.getAbsolutePath() + " to region storage", e);
+			}
+		}
+
+		return converted;
+	}
+}
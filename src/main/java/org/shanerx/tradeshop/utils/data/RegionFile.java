@@ -0,0 +1,311 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils.data;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * Stores the shop data of 32x32 chunks in a single file, similar to the Anvil format.
+ * <p>
+ * The file starts with a header of 1024 entries, one per chunk, each holding the
+ * sector the chunk's data starts at and the length of the data in bytes. The data
+ * itself is the chunk's JSON, deflate compressed, and is stored in 512 byte sectors
+ * after the header. Sectors freed by a chunk that was rewritten or removed are reused.
+ * </p>
+ * <p>
+ * A chunk is always written to free sectors before the header is changed to point to it,
+ * so a write that is interrupted leaves the previous data of the chunk intact.
+ * </p>
+ */
+public class RegionFile {
+
+	public static final String PREFIX = "r.", EXTENSION = ".tsr";
+	private static final int CHUNKS = 1024, SECTOR_SIZE = 512, HEADER_SECTORS = CHUNKS * 8 / SECTOR_SIZE;
+	private static final Map<File, RegionFile> openFiles = new ConcurrentHashMap<>();
+
+	private final File file;
+	private final int regionX, regionZ;
+	private final int[] offsets = new int[CHUNKS], lengths = new int[CHUNKS];
+	private final BitSet usedSectors = new BitSet();
+	private RandomAccessFile access;
+
+	private RegionFile(File file, int regionX, int regionZ) {
+		this.file = file;
+		this.regionX = regionX;
+		this.regionZ = regionZ;
+
+		if (file.exists()) {
+			open();
+		}
+	}
+
+	/**
+	 * Returns the region file holding the specified chunk, the file is only created once data is written to it
+	 *
+	 * @param folder folder holding the worlds data
+	 * @param chunkX x coordinate of the chunk
+	 * @param chunkZ z coordinate of the chunk
+	 * @return region file of the chunk
+	 */
+	public static RegionFile get(File folder, int chunkX, int chunkZ) {
+		int regionX = chunkX >> 5, regionZ = chunkZ >> 5;
+		return openFiles.computeIfAbsent(new File(folder, PREFIX + regionX + "." + regionZ + EXTENSION), file -> new RegionFile(file, regionX, regionZ));
+	}
+
+	/**
+	 * Returns the region file with the specified name
+	 *
+	 * @param folder folder holding the worlds data
+	 * @param name   file name of the region
+	 * @return region file or null if the name is not a region file name
+	 */
+	public static RegionFile get(File folder, String name) {
+		if (!name.startsWith(PREFIX) || !name.endsWith(EXTENSION))
+			return null;
+
+		String[] coords = name.substring(PREFIX.length(), name.length() - EXTENSION.length()).split("\\.");
+		try {
+			return get(folder, Integer.parseInt(coords[0]) << 5, Integer.parseInt(coords[1]) << 5);
+		} catch (NumberFormatException | ArrayIndexOutOfBoundsException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Closes every open region file, should only be used after all pending writes are done
+	 */
+	public static void closeAll() {
+		for (RegionFile region : openFiles.values()) {
+			region.close();
+		}
+
+		openFiles.clear();
+	}
+
+	/**
+	 * Returns the coordinates of every chunk that has data in this region
+	 *
+	 * @return List of chunk coordinates as {x, z}
+	 */
+	public synchronized List<int[]> getStoredChunks() {
+		List<int[]> chunks = new ArrayList<>();
+
+		for (int i = 0; i < CHUNKS; i++) {
+			if (lengths[i] > 0)
+				chunks.add(new int[]{(regionX << 5) + (i & 31), (regionZ << 5) + (i >> 5)});
+		}
+
+		return chunks;
+	}
+
+	/**
+	 * Reads the data of a chunk
+	 *
+	 * @param chunkX x coordinate of the chunk
+	 * @param chunkZ z coordinate of the chunk
+	 * @return the chunk's data or null if nothing is stored for it
+	 */
+	public synchronized String read(int chunkX, int chunkZ) {
+		int index = getIndex(chunkX, chunkZ);
+
+		if (access == null || lengths[index] == 0)
+			return null;
+
+		try {
+			byte[] data = new byte[lengths[index]];
+			access.seek((long) offsets[index] * SECTOR_SIZE);
+			access.readFully(data);
+
+			return new String(inflate(data), StandardCharsets.UTF_8);
+		} catch (IOException | DataFormatException e) {
+			throw new RuntimeException("Could not read chunk " + chunkX + ", " + chunkZ + " from " + file.getName(), e);
+		}
+	}
+
+	/**
+	 * Writes the data of a chunk, replacing anything stored for it before
+	 *
+	 * @param chunkX x coordinate of the chunk
+	 * @param chunkZ z coordinate of the chunk
+	 * @param str    data to store
+	 */
+	public synchronized void write(int chunkX, int chunkZ, String str) {
+		int index = getIndex(chunkX, chunkZ);
+		byte[] data = deflate(str.getBytes(StandardCharsets.UTF_8));
+		int sectors = getSectors(data.length);
+
+		if (access == null)
+			open();
+
+		// The old sectors are still used while the new data is written, they are only freed once the header points to the new data
+		int offset = findFreeSectors(sectors);
+		int oldOffset = offsets[index], oldLength = lengths[index];
+
+		try {
+			access.seek((long) offset * SECTOR_SIZE);
+			access.write(data);
+			usedSectors.set(offset, offset + sectors);
+			writeHeader(index, offset, data.length);
+
+			if (oldLength > 0)
+				usedSectors.clear(oldOffset, oldOffset + getSectors(oldLength));
+		} catch (IOException e) {
+			throw new RuntimeException("Could not write chunk " + chunkX + ", " + chunkZ + " to " + file.getName(), e);
+		}
+	}
+
+	/**
+	 * Removes the data of a chunk
+	 *
+	 * @param chunkX x coordinate of the chunk
+	 * @param chunkZ z coordinate of the chunk
+	 */
+	public synchronized void delete(int chunkX, int chunkZ) {
+		int index = getIndex(chunkX, chunkZ);
+
+		if (access == null || lengths[index] == 0)
+			return;
+
+		freeSectors(index);
+		try {
+			writeHeader(index, 0, 0);
+		} catch (IOException e) {
+			throw new RuntimeException("Could not delete chunk " + chunkX + ", " + chunkZ + " from " + file.getName(), e);
+		}
+	}
+
+	private void open() {
+		try {
+			boolean created = !file.exists();
+			file.getParentFile().mkdirs();
+			access = new RandomAccessFile(file, "rw");
+
+			if (created || access.length() < HEADER_SECTORS * SECTOR_SIZE) {
+				access.setLength(HEADER_SECTORS * SECTOR_SIZE);
+			}
+
+			usedSectors.set(0, HEADER_SECTORS);
+			access.seek(0);
+			for (int i = 0; i < CHUNKS; i++) {
+				offsets[i] = access.readInt();
+				lengths[i] = access.readInt();
+
+				if (lengths[i] > 0)
+					usedSectors.set(offsets[i], offsets[i] + getSectors(lengths[i]));
+			}
+		} catch (IOException e) {
+			throw new RuntimeException("Could not open " + file.getName(), e);
+		}
+	}
+
+	private synchronized void close() {
+		if (access == null)
+			return;
+
+		try {
+			access.close();
+		} catch (IOException ignored) {
+		}
+
+		access = null;
+	}
+
+	private void writeHeader(int index, int offset, int length) throws IOException {
+		offsets[index] = offset;
+		lengths[index] = length;
+		access.seek(index * 8L);
+		access.writeInt(offset);
+		access.writeInt(length);
+	}
+
+	private void freeSectors(int index) {
+		if (lengths[index] > 0)
+			usedSectors.clear(offsets[index], offsets[index] + getSectors(lengths[index]));
+	}
+
+	private int findFreeSectors(int sectors) {
+		int start = usedSectors.nextClearBit(HEADER_SECTORS);
+
+		// The first gap large enough is used, the end of the file is always free
+		while (usedSectors.nextSetBit(start) != -1 && usedSectors.nextSetBit(start) - start < sectors) {
+			start = usedSectors.nextClearBit(usedSectors.nextSetBit(start));
+		}
+
+		return start;
+	}
+
+	private static int getIndex(int chunkX, int chunkZ) {
+		return (chunkX & 31) + (chunkZ & 31) * 32;
+	}
+
+	private static int getSectors(int length) {
+		return (length + SECTOR_SIZE - 1) / SECTOR_SIZE;
+	}
+
+	private static byte[] deflate(byte[] data) {
+		Deflater deflater = new Deflater();
+		deflater.setInput(data);
+		deflater.finish();
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length / 2 + 16);
+		byte[] buffer = new byte[1024];
+		while (!deflater.finished()) {
+			out.write(buffer, 0, deflater.deflate(buffer));
+		}
+		deflater.end();
+
+		return out.toByteArray();
+	}
+
+	private static byte[] inflate(byte[] data) throws DataFormatException {
+		Inflater inflater = new Inflater();
+		inflater.setInput(data);
+
+		ByteArrayOutputStream out = new ByteArrayOutputStream(data.length * 4);
+		byte[] buffer = new byte[1024];
+		while (!inflater.finished()) {
+			int read = inflater.inflate(buffer);
+			if (read == 0 && (inflater.needsInput() || inflater.needsDictionary()))
+				break;
+			out.write(buffer, 0, read);
+		}
+		inflater.end();
+
+		return out.toByteArray();
+	}
+}
@@ -0,0 +1,416 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import com.google.gson.Gson;
+import com.google.gson.reflect.TypeToken;
+import org.bukkit.Material;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.utils.Utils;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
+
+import java.io.File;
+import java.sql.Connection;
+import java.sql.DriverManager;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Statement;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Stores shops and players in a single SQLite database file.
+ * <p>
+ * Chunk, owner, status and item materials are kept in indexed columns so that queries
+ * across shops do not have to read every shop. The shop itself is stored as the same
+ * JSON the chunk files use. Existing JSON data is imported in a single transaction when the
+ * database is created, an import that failed is retried on the next start.
+ * </p>
+ */
+public class SQLiteDataStore extends Utils implements ShopDataStore {
+
+	public static final String FILE_NAME = "shops.db";
+
+	private static final String[] SCHEMA = {
+			"CREATE TABLE IF NOT EXISTS shops (location TEXT PRIMARY KEY, world TEXT NOT NULL, chunk_x INTEGER NOT NULL, chunk_z INTEGER NOT NULL, owner TEXT, status TEXT, shop_type TEXT, data TEXT NOT NULL)",
+			"CREATE INDEX IF NOT EXISTS shops_chunk ON shops (world, chunk_x, chunk_z)",
+			"CREATE INDEX IF NOT EXISTS shops_owner ON shops (owner)",
+			"CREATE INDEX IF NOT EXISTS shops_status ON shops (status)",
+			"CREATE TABLE IF NOT EXISTS shop_items (location TEXT NOT NULL, material TEXT NOT NULL, PRIMARY KEY (location, material))",
+			"CREATE INDEX IF NOT EXISTS shop_items_material ON shop_items (material)",
+			"CREATE TABLE IF NOT EXISTS players (uuid TEXT PRIMARY KEY, data TEXT NOT NULL)",
+			"CREATE TABLE IF NOT EXISTS meta (key TEXT PRIMARY KEY, value TEXT NOT NULL)"
+	};
+	private static final String JSON_IMPORTED = "json-imported";
+
+	private final Gson gson = GsonProcessor.getGson();
+	private Connection connection;
+
+	@Override
+	public synchronized void open() {
+		File dataFolder = new File(plugin.getDataFolder(), "Data");
+		File file = new File(dataFolder, FILE_NAME);
+		boolean imported;
+
+		try {
+			Class.forName("org.sqlite.JDBC");
+			dataFolder.mkdirs();
+			connection = DriverManager.getConnection("jdbc:sqlite:" + file.getAbsolutePath());
+
+			try (Statement statement = connection.createStatement()) {
+				for (String sql : SCHEMA) {
+					statement.executeUpdate(sql);
+				}
+			}
+
+			// Databases created before the import was recorded only have shops if their import finished
+			try (Statement statement = connection.createStatement();
+				 ResultSet result = statement.executeQuery("SELECT 1 FROM shops LIMIT 1")) {
+				imported = getMeta(JSON_IMPORTED) != null || result.next();
+			}
+		} catch (ClassNotFoundException | SQLException e) {
+			throw new RuntimeException("Could not open " + file.getAbsolutePath(), e);
+		}
+
+		if (!imported)
+			importJson();
+	}
+
+	@Override
+	public synchronized void close() {
+		if (connection == null)
+			return;
+
+		try {
+			connection.close();
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		} finally {
+			connection = null;
+		}
+	}
+
+	@Override
+	public synchronized List<ShopChunk> getChunksWithData(String worldName) {
+		List<ShopChunk> chunks = new ArrayList<>();
+
+		try (PreparedStatement statement = connection.prepareStatement("SELECT DISTINCT chunk_x, chunk_z FROM shops WHERE world = ?")) {
+			statement.setString(1, worldName);
+
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					chunks.add(new ShopChunk(worldName, result.getInt(1), result.getInt(2)));
+				}
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+
+		return chunks;
+	}
+
+	@Override
+	public synchronized Map<String, Shop> loadShops(ShopChunk chunk) {
+		Map<String, String> stored = new LinkedHashMap<>();
+
+		try (PreparedStatement statement = connection.prepareStatement("SELECT location, data FROM shops WHERE world = ? AND chunk_x = ? AND chunk_z = ?")) {
+			setChunk(statement, chunk);
+
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					stored.put(result.getString(1), result.getString(2));
+				}
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+
+		Map<String, Shop> shops = new LinkedHashMap<>();
+		for (Map.Entry<String, String> entry : stored.entrySet()) {
+			shops.put(entry.getKey(), gson.fromJson(entry.getValue(), Shop.class));
+		}
+
+		return shops;
+	}
+
+	@Override
+	public Shop loadShop(ShopLocation loc) {
+		String data = null;
+
+		synchronized (this) {
+			try (PreparedStatement statement = connection.prepareStatement("SELECT data FROM shops WHERE location = ?")) {
+				statement.setString(1, loc.serialize());
+
+				try (ResultSet result = statement.executeQuery()) {
+					if (result.next())
+						data = result.getString(1);
+				}
+			} catch (SQLException e) {
+				throw new RuntimeException(e);
+			}
+		}
+
+		if (data == null)
+			return null;
+
+		return gson.fromJson(data, Shop.class);
+	}
+
+	@Override
+	public synchronized int getShopCount(ShopChunk chunk) {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT COUNT(*) FROM shops WHERE world = ? AND chunk_x = ? AND chunk_z = ?")) {
+			setChunk(statement, chunk);
+
+			try (ResultSet result = statement.executeQuery()) {
+				return result.next() ? result.getInt(1) : 0;
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	@Override
+	public synchronized void saveShops(ShopChunk chunk, Collection<ShopRecord> records) {
+		try {
+			connection.setAutoCommit(false);
+			writeShops(chunk, records);
+			connection.commit();
+		} catch (SQLException e) {
+			rollback();
+			throw new RuntimeException("Could not save shops of " + chunk.serialize(), e);
+		} finally {
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException ignored) {
+			}
+		}
+	}
+
+	@Override
+	public List<String> findByOwner(UUID owner) {
+		return find("SELECT location FROM shops WHERE owner = ?", owner.toString());
+	}
+
+	@Override
+	public List<String> findByStatus(ShopStatus status) {
+		return find("SELECT location FROM shops WHERE status = ?", status.name());
+	}
+
+	@Override
+	public List<String> findByItem(Material material) {
+		return find("SELECT location FROM shop_items WHERE material = ?", material.name());
+	}
+
+	@Override
+	public synchronized Map<String, Integer> loadPlayer(UUID uuid) {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT data FROM players WHERE uuid = ?")) {
+			statement.setString(1, uuid.toString());
+
+			try (ResultSet result = statement.executeQuery()) {
+				if (result.next()) {
+					return gson.fromJson(result.getString(1), new TypeToken<Map<String, Integer>>() {
+					}.getType());
+				}
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+
+		return new HashMap<>();
+	}
+
+	@Override
+	public synchronized void savePlayer(UUID uuid, Map<String, Integer> data) {
+		try {
+			writePlayer(uuid, data);
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+	}
+
+	private synchronized List<String> find(String sql, String value) {
+		List<String> found = new ArrayList<>();
+
+		try (PreparedStatement statement = connection.prepareStatement(sql)) {
+			statement.setString(1, value);
+
+			try (ResultSet result = statement.executeQuery()) {
+				while (result.next()) {
+					found.add(result.getString(1));
+				}
+			}
+		} catch (SQLException e) {
+			throw new RuntimeException(e);
+		}
+
+		return found;
+	}
+
+	private void writeShops(ShopChunk chunk, Collection<ShopRecord> records) throws SQLException {
+		try (PreparedStatement deleteItems = connection.prepareStatement("DELETE FROM shop_items WHERE location IN (SELECT location FROM shops WHERE world = ? AND chunk_x = ? AND chunk_z = ?)");
+			 PreparedStatement deleteShops = connection.prepareStatement("DELETE FROM shops WHERE world = ? AND chunk_x = ? AND chunk_z = ?");
+			 PreparedStatement insertShop = connection.prepareStatement("INSERT OR REPLACE INTO shops (location, world, chunk_x, chunk_z, owner, status, shop_type, data) VALUES (?, ?, ?, ?, ?, ?, ?, ?)");
+			 PreparedStatement insertItem = connection.prepareStatement("INSERT OR IGNORE INTO shop_items (location, material) VALUES (?, ?)")) {
+			setChunk(deleteItems, chunk);
+			deleteItems.executeUpdate();
+			setChunk(deleteShops, chunk);
+			deleteShops.executeUpdate();
+
+			for (ShopRecord record : records) {
+				insertShop.setString(1, record.getLocation());
+				insertShop.setString(2, chunk.getWorldName());
+				insertShop.setInt(3, chunk.getX());
+				insertShop.setInt(4, chunk.getZ());
+				insertShop.setString(5, record.getOwner() != null ? record.getOwner().toString() : null);
+				insertShop.setString(6, record.getStatus() != null ? record.getStatus().name() : null);
+				insertShop.setString(7, record.getShopType() != null ? record.getShopType().name() : null);
+				insertShop.setString(8, gson.toJson(record.getData()));
+				insertShop.addBatch();
+
+				for (Material material : record.getMaterials()) {
+					insertItem.setString(1, record.getLocation());
+					insertItem.setString(2, material.name());
+					insertItem.addBatch();
+				}
+			}
+
+			insertShop.executeBatch();
+			insertItem.executeBatch();
+		}
+	}
+
+	private void writePlayer(UUID uuid, Map<String, Integer> data) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO players (uuid, data) VALUES (?, ?)")) {
+			statement.setString(1, uuid.toString());
+			statement.setString(2, gson.toJson(data));
+			statement.executeUpdate();
+		}
+	}
+
+	private String getMeta(String key) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("SELECT value FROM meta WHERE key = ?")) {
+			statement.setString(1, key);
+
+			try (ResultSet result = statement.executeQuery()) {
+				return result.next() ? result.getString(1) : null;
+			}
+		}
+	}
+
+	private void setMeta(String key, String value) throws SQLException {
+		try (PreparedStatement statement = connection.prepareStatement("INSERT OR REPLACE INTO meta (key, value) VALUES (?, ?)")) {
+			statement.setString(1, key);
+			statement.setString(2, value);
+			statement.executeUpdate();
+		}
+	}
+
+	private void rollback() {
+		try {
+			connection.rollback();
+		} catch (SQLException ignored) {
+		}
+	}
+
+	private void setChunk(PreparedStatement statement, ShopChunk chunk) throws SQLException {
+		statement.setString(1, chunk.getWorldName());
+		statement.setInt(2, chunk.getX());
+		statement.setInt(3, chunk.getZ());
+	}
+
+	/**
+	 * Copies the data of the chunk, region and player files into the new database in one transaction
+	 * and records that the import finished, the files are left untouched
+	 */
+	private void importJson() {
+		JsonDataStore flatFiles = new JsonDataStore(false), regions = new JsonDataStore(true);
+		int shops = 0, players = 0, conflicts = 0;
+
+		try {
+			connection.setAutoCommit(false);
+
+			Set<String> worldNames = new LinkedHashSet<>(regions.getWorldNames());
+			worldNames.addAll(flatFiles.getWorldNames());
+
+			for (String worldName : worldNames) {
+				Set<ShopChunk> chunks = new LinkedHashSet<>(regions.getChunksWithData(worldName));
+				chunks.addAll(flatFiles.getChunksWithData(worldName));
+
+				for (ShopChunk chunk : chunks) {
+					// Chunk files next to region data were written after the storage was switched back, so they win
+					Map<String, ShopRecord> records = new LinkedHashMap<>();
+					for (JsonDataStore json : new JsonDataStore[]{regions, flatFiles}) {
+						for (Shop shop : json.loadShops(chunk).values()) {
+							shop.itemsFromB64();
+							ShopRecord record = new ShopRecord(shop);
+							if (records.put(record.getLocation(), record) != null)
+								conflicts++;
+						}
+					}
+
+					writeShops(chunk, records.values());
+					shops += records.size();
+				}
+			}
+
+			for (UUID uuid : flatFiles.getStoredPlayers()) {
+				writePlayer(uuid, flatFiles.loadPlayer(uuid));
+				players++;
+			}
+
+			setMeta(JSON_IMPORTED, String.valueOf(System.currentTimeMillis()));
+			connection.commit();
+		} catch (SQLException | RuntimeException e) {
+			rollback();
+			throw new RuntimeException("Could not import the shop data into " + FILE_NAME + ", the import is retried on the next start", e);
+		} finally {
+			RegionFile.closeAll();
+
+			try {
+				connection.setAutoCommit(true);
+			} catch (SQLException ignored) {
+			}
+		}
+
+		if (conflicts > 0)
+			plugin.getLogger().warning(conflicts + " shops were stored both in chunk files and region files, the chunk files were imported.");
+
+		if (shops > 0 || players > 0)
+			plugin.getLogger().info("Imported " + shops + " shops and " + players + " players into " + FILE_NAME + ".");
+	}
+}
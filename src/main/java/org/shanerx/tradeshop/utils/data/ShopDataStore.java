@@ -0,0 +1,143 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Material;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Persistent storage for shop and player data.
+ * <p>
+ * Shops are always read and written a chunk at a time, the {@link ShopRegistry} keeps them in
+ * memory and passes dirty chunks to the store as {@link ShopRecord}s. Writes and searches are
+ * called from the background writer thread so implementations have to be thread safe.
+ * </p>
+ * <p>
+ * Loaded shops are returned as stored, {@link Shop#fixAfterLoad()} has to be called on the main
+ * thread before they are used.
+ * </p>
+ */
+public interface ShopDataStore {
+
+	/**
+	 * Prepares the store for use, called once while the plugin enables
+	 */
+	void open();
+
+	/**
+	 * Releases any resources held by the store, called once while the plugin disables
+	 */
+	void close();
+
+	/**
+	 * Returns every chunk of the world that has shops stored
+	 *
+	 * @param worldName name of the world
+	 * @return chunks with stored shops
+	 */
+	List<ShopChunk> getChunksWithData(String worldName);
+
+	/**
+	 * Loads every shop stored in the chunk
+	 *
+	 * @param chunk chunk to load
+	 * @return Map of serialized sign locations to their Shop
+	 */
+	Map<String, Shop> loadShops(ShopChunk chunk);
+
+	/**
+	 * Loads a single shop without loading the rest of its chunk
+	 *
+	 * @param loc Location of the shop sign
+	 * @return the Shop or null if there is no shop stored at the location
+	 */
+	Shop loadShop(ShopLocation loc);
+
+	/**
+	 * Returns the amount of shops stored in the chunk without loading them
+	 *
+	 * @param chunk chunk to count the shops in
+	 * @return amount of stored shops
+	 */
+	int getShopCount(ShopChunk chunk);
+
+	/**
+	 * Replaces the stored shops of the chunk, an empty collection removes the chunk
+	 *
+	 * @param chunk   chunk to save
+	 * @param records every shop in the chunk
+	 */
+	void saveShops(ShopChunk chunk, Collection<ShopRecord> records);
+
+	/**
+	 * Returns the locations of all stored shops owned by the player
+	 *
+	 * @param owner UUID of the owner
+	 * @return serialized sign locations of the matching shops
+	 */
+	List<String> findByOwner(UUID owner);
+
+	/**
+	 * Returns the locations of all stored shops with the status
+	 *
+	 * @param status status to look for
+	 * @return serialized sign locations of the matching shops
+	 */
+	List<String> findByStatus(ShopStatus status);
+
+	/**
+	 * Returns the locations of all stored shops that have the material as cost or product
+	 *
+	 * @param material material to look for
+	 * @return serialized sign locations of the matching shops
+	 */
+	List<String> findByItem(Material material);
+
+	/**
+	 * Loads the stored data of a player
+	 *
+	 * @param uuid UUID of the player
+	 * @return the players data, empty if nothing is stored
+	 */
+	Map<String, Integer> loadPlayer(UUID uuid);
+
+	/**
+	 * Stores the data of a player
+	 *
+	 * @param uuid UUID of the player
+	 * @param data data to store
+	 */
+	void savePlayer(UUID uuid, Map<String, Integer> data);
+}
@@ -0,0 +1,292 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.block.Block;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.Map;
+
+/**
+ * Index of the block positions used by the shops held in memory by the {@link ShopRegistry}.
+ * <p>
+ * Every shop gets an id, the index maps packed block coordinates of its sign and storage block to
+ * that id. The blocks next to the sign and the blocks beside those are claimed as well since the
+ * live checks can link them to the sign, e.g. the other half of a double chest. Lookups only use
+ * primitive maps so non-shop blocks are rejected without touching the world.
+ * </p>
+ * <p>
+ * Chunks that have stored shops which are not in memory yet are pending, lookups near them can
+ * not be answered and {@link #mayBeShop(Block)} returns true so the caller falls back to the live checks.
+ * </p>
+ * <p>
+ * Must only be used on the main thread.
+ * </p>
+ */
+public class ShopIndex {
+
+	private static final int SIGN = 0, STORAGE = 1, NONE = -1;
+	private static final int[][] FACES = {{1, 0, 0}, {-1, 0, 0}, {0, 1, 0}, {0, -1, 0}, {0, 0, 1}, {0, 0, -1}};
+
+	private final Map<String, WorldIndex> worlds = new HashMap<>();
+	private final Map<Shop, Integer> ids = new IdentityHashMap<>();
+	private Shop[] shops = new Shop[64];
+	private String[] shopWorlds = new String[64];
+	private long[] signs = new long[64], storages = new long[64];
+	private int[] freeIds = new int[16];
+	private int freeCount, nextId = 1;
+
+	/**
+	 * Starts answering lookups in a world
+	 *
+	 * @param worldName      name of the world
+	 * @param chunksWithData chunks that have stored shops, they are pending until their shops are added
+	 */
+	public void trackWorld(String worldName, Collection<ShopChunk> chunksWithData) {
+		WorldIndex world = getWorld(worldName);
+
+		for (ShopChunk chunk : chunksWithData) {
+			world.pending.put(packChunk(chunk.getX(), chunk.getZ()), 1);
+		}
+	}
+
+	/**
+	 * Marks whether a chunk has stored shops that are not in memory
+	 *
+	 * @param chunk   chunk to mark
+	 * @param pending true if the shops of the chunk are not in memory
+	 */
+	public void setPending(ShopChunk chunk, boolean pending) {
+		WorldIndex world = worlds.get(chunk.getWorldName());
+
+		if (world == null)
+			return;
+
+		if (pending)
+			world.pending.put(packChunk(chunk.getX(), chunk.getZ()), 1);
+		else
+			world.pending.remove(packChunk(chunk.getX(), chunk.getZ()));
+	}
+
+	/**
+	 * Adds the positions of a shop, positions it was added with before are removed first
+	 *
+	 * @param shop shop to add
+	 */
+	public void add(Shop shop) {
+		remove(shop);
+
+		ShopLocation sign = shop.getShopLocationAsSL(), storage = shop.getInventoryLocationAsSL();
+		WorldIndex world = getWorld(sign.getWorldName());
+		int id = allocate();
+
+		shops[id] = shop;
+		shopWorlds[id] = sign.getWorldName();
+		signs[id] = pack(sign);
+		storages[id] = storage != null && sign.getWorldName().equals(storage.getWorldName()) ? pack(storage) : Long.MIN_VALUE;
+		ids.put(shop, id);
+
+		world.positions.put(signs[id], id << 1 | SIGN);
+		if (storages[id] != Long.MIN_VALUE)
+			world.positions.put(storages[id], id << 1 | STORAGE);
+
+		claim(world, id, 1);
+	}
+
+	/**
+	 * Removes the positions of a shop
+	 *
+	 * @param shop shop to remove
+	 */
+	public void remove(Shop shop) {
+		Integer id = ids.remove(shop);
+
+		if (id == null)
+			return;
+
+		WorldIndex world = getWorld(shopWorlds[id]);
+
+		if (world.positions.get(signs[id], NONE) >> 1 == id)
+			world.positions.remove(signs[id]);
+		if (storages[id] != Long.MIN_VALUE && world.positions.get(storages[id], NONE) >> 1 == id)
+			world.positions.remove(storages[id]);
+
+		claim(world, id, -1);
+
+		shops[id] = null;
+		shopWorlds[id] = null;
+
+		if (freeCount == freeIds.length)
+			freeIds = Arrays.copyOf(freeIds, freeCount * 2);
+		freeIds[freeCount++] = id;
+	}
+
+	/**
+	 * Returns false if the block is known to be neither part of a shop nor next to one
+	 *
+	 * @param block block to check, may be null
+	 * @return true if the block may belong to a shop and the live checks have to decide
+	 */
+	public boolean mayBeShop(Block block) {
+		if (block == null)
+			return false;
+
+		WorldIndex world = worlds.get(block.getWorld().getName());
+		int x = block.getX(), z = block.getZ();
+
+		if (world == null || !world.isSettled(x, z))
+			return true;
+
+		long key = pack(x, block.getY(), z);
+		return world.positions.containsKey(key) || world.claims.containsKey(key);
+	}
+
+	/**
+	 * Returns the shop whose sign or storage block is the block
+	 *
+	 * @param block block to look up
+	 * @return the shop or null if the block is not indexed as the sign or storage of a shop
+	 */
+	public Shop getShop(Block block) {
+		int value = lookup(block);
+		return value == NONE ? null : shops[value >> 1];
+	}
+
+	/**
+	 * Returns the shop whose storage block is the block
+	 *
+	 * @param block block to look up
+	 * @return the shop or null if the block is not indexed as the storage of a shop
+	 */
+	public Shop getStorageShop(Block block) {
+		int value = lookup(block);
+		return value == NONE || (value & 1) != STORAGE ? null : shops[value >> 1];
+	}
+
+	private int lookup(Block block) {
+		WorldIndex world = block == null ? null : worlds.get(block.getWorld().getName());
+
+		return world == null ? NONE : world.positions.get(pack(block.getX(), block.getY(), block.getZ()), NONE);
+	}
+
+	/**
+	 * Claims the blocks next to the sign, the blocks beside those and the blocks beside the storage
+	 */
+	private void claim(WorldIndex world, int id, int delta) {
+		long sign = signs[id];
+		int x = unpackX(sign), y = unpackY(sign), z = unpackZ(sign);
+
+		for (int[] face : FACES) {
+			claimBeside(world, x + face[0], y + face[1], z + face[2], delta);
+		}
+
+		if (storages[id] != Long.MIN_VALUE)
+			claimBeside(world, unpackX(storages[id]), unpackY(storages[id]), unpackZ(storages[id]), delta);
+	}
+
+	private void claimBeside(WorldIndex world, int x, int y, int z, int delta) {
+		world.claims.add(pack(x, y, z), delta);
+		world.claims.add(pack(x + 1, y, z), delta);
+		world.claims.add(pack(x - 1, y, z), delta);
+		world.claims.add(pack(x, y, z + 1), delta);
+		world.claims.add(pack(x, y, z - 1), delta);
+	}
+
+	private int allocate() {
+		if (freeCount > 0)
+			return freeIds[--freeCount];
+
+		if (nextId == shops.length) {
+			shops = Arrays.copyOf(shops, nextId * 2);
+			shopWorlds = Arrays.copyOf(shopWorlds, nextId * 2);
+			signs = Arrays.copyOf(signs, nextId * 2);
+			storages = Arrays.copyOf(storages, nextId * 2);
+		}
+
+		return nextId++;
+	}
+
+	private WorldIndex getWorld(String worldName) {
+		return worlds.computeIfAbsent(worldName, name -> new WorldIndex());
+	}
+
+	private static long pack(ShopLocation loc) {
+		return pack((int) Math.floor(loc.getX()), (int) Math.floor(loc.getY()), (int) Math.floor(loc.getZ()));
+	}
+
+	/**
+	 * Packs block coordinates into 26 bits of x, 26 bits of z and 12 bits of y
+	 */
+	private static long pack(int x, int y, int z) {
+		return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+	}
+
+	private static int unpackX(long packed) {
+		return (int) (packed >> 38);
+	}
+
+	private static int unpackY(long packed) {
+		return (int) (packed << 52 >> 52);
+	}
+
+	private static int unpackZ(long packed) {
+		return (int) (packed << 26 >> 38);
+	}
+
+	private static long packChunk(int x, int z) {
+		return ((long) x << 32) | (z & 0xFFFFFFFFL);
+	}
+
+	private static class WorldIndex {
+
+		private final LongIntMap positions = new LongIntMap(), claims = new LongIntMap(), pending = new LongIntMap();
+
+		/**
+		 * Returns true if every chunk that could hold a shop linked to the column is in memory
+		 */
+		private boolean isSettled(int x, int z) {
+			if (pending.size() == 0)
+				return true;
+
+			// Signs are at most two blocks away from the blocks they claim
+			for (int chunkX = (x - 2) >> 4; chunkX <= (x + 2) >> 4; chunkX++) {
+				for (int chunkZ = (z - 2) >> 4; chunkZ <= (z + 2) >> 4; chunkZ++) {
+					if (pending.containsKey(packChunk(chunkX, chunkZ)))
+						return false;
+				}
+			}
+
+			return true;
+		}
+	}
+}
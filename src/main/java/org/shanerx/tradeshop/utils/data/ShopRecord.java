@@ -0,0 +1,110 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import com.google.gson.JsonElement;
+import org.bukkit.Material;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.utils.gsonprocessing.GsonProcessor;
+
+import java.util.Collections;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Snapshot of a shop taken on the main thread so it can be written by the background writer
+ * while the shop itself keeps changing.
+ */
+public class ShopRecord {
+
+	private final String location;
+	private final ShopChunk chunk;
+	private final UUID owner;
+	private final ShopStatus status;
+	private final ShopType shopType;
+	private final Set<Material> materials;
+	private final JsonElement data;
+
+	public ShopRecord(Shop shop) {
+		location = shop.getShopLocationAsSL().serialize();
+		chunk = new ShopChunk(shop.getShopLocationAsSL());
+		owner = shop.getOwner() != null ? parseUUID(shop.getOwner().getUUIDString()) : null;
+		status = shop.getStatus();
+		shopType = shop.getShopType();
+		materials = Collections.unmodifiableSet(shop.getMaterials());
+		data = GsonProcessor.getGson().toJsonTree(shop);
+	}
+
+	public String getLocation() {
+		return location;
+	}
+
+	public ShopChunk getChunk() {
+		return chunk;
+	}
+
+	public UUID getOwner() {
+		return owner;
+	}
+
+	public ShopStatus getStatus() {
+		return status;
+	}
+
+	public ShopType getShopType() {
+		return shopType;
+	}
+
+	/**
+	 * Returns every material used as cost or product
+	 *
+	 * @return Set of materials in the shop
+	 */
+	public Set<Material> getMaterials() {
+		return materials;
+	}
+
+	/**
+	 * Returns the shop serialized the same way as in the chunk files
+	 *
+	 * @return the serialized shop
+	 */
+	public JsonElement getData() {
+		return data;
+	}
+
+	private static UUID parseUUID(String uuid) {
+		try {
+			return uuid != null ? UUID.fromString(uuid) : null;
+		} catch (IllegalArgumentException e) {
+			return null;
+		}
+	}
+}
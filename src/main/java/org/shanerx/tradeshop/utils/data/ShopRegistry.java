@@ -0,0 +1,571 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.bukkit.scheduler.BukkitTask;
+import org.shanerx.tradeshop.enumys.Setting;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Predicate;
+import java.util.logging.Level;
+
+/**
+ * Holds every loaded shop in memory, grouped by the chunk it is stored in.
+ * <p>
+ * Lookups and mutations only touch memory, changed chunks are marked dirty and
+ * written to disk by a periodic flush so that many changes to the same chunk
+ * result in a single write.
+ * </p>
+ * <p>
+ * Each world keeps an index of the chunks that have stored shops, it is read in the background
+ * when the world loads. Lookups in any other chunk are answered without touching the {@link ShopDataStore}.
+ * </p>
+ * <p>
+ * Lookups never read from the store. Chunks that are not in memory yet are loaded in the background
+ * once they are changed or a lookup in them misses, until then {@link #isLoaded(ShopLocation)} is false.
+ * Changes made before that are kept in memory and the chunk is only written once it is complete.
+ * </p>
+ * <p>
+ * Chunks are preloaded in the background when they load and evicted once their changes are
+ * written after they unload, so memory follows the loaded terrain. Chunks that were only read
+ * by lookups while unloaded are evicted by the next flush.
+ * </p>
+ * <p>
+ * The block positions of every shop of a fully loaded chunk are kept in the {@link ShopIndex}.
+ * </p>
+ */
+public class ShopRegistry extends Utils {
+
+	private final Map<ShopChunk, ChunkEntry> chunks = new ConcurrentHashMap<>();
+	private final Map<String, Set<Long>> chunksWithData = new ConcurrentHashMap<>();
+	private final Set<String> scannedWorlds = ConcurrentHashMap.newKeySet(), scanningWorlds = ConcurrentHashMap.newKeySet();
+	private final Set<ShopChunk> preloading = ConcurrentHashMap.newKeySet();
+	private final ExecutorService writer = Executors.newSingleThreadExecutor(runnable -> {
+		Thread thread = new Thread(runnable, "TradeShop Data Writer");
+		thread.setDaemon(true);
+		return thread;
+	});
+	private final ShopDataStore store;
+	private BukkitTask flushTask;
+
+	public ShopRegistry(ShopDataStore store) {
+		this.store = store;
+	}
+
+	/**
+	 * Starts the repeating task that writes dirty chunks to the store
+	 */
+	public void start() {
+		long interval = Math.max(1, Setting.DATA_FLUSH_INTERVAL.getInt()) * 20L;
+		flushTask = Bukkit.getScheduler().runTaskTimer(plugin, this::flush, interval, interval);
+	}
+
+	/**
+	 * Writes all pending changes and stops the background writer, should only be used while the plugin is disabling
+	 */
+	public void shutdown() {
+		if (flushTask != null) {
+			flushTask.cancel();
+			flushTask = null;
+		}
+
+		// The server is stopping, chunks with changes that are still incomplete have to be read now
+		for (ChunkEntry entry : chunks.values()) {
+			if (entry.dirty && !entry.complete) {
+				try {
+					install(entry, writer.submit(() -> store.loadShops(entry.chunk)).get());
+				} catch (ExecutionException e) {
+					plugin.getLogger().log(Level.SEVERE, "Could not load shop data for " + entry.chunk.serialize() + "!", e.getCause());
+				} catch (InterruptedException e) {
+					Thread.currentThread().interrupt();
+				}
+			}
+		}
+
+		flush();
+		writer.shutdown();
+
+		try {
+			if (!writer.awaitTermination(30, TimeUnit.SECONDS)) {
+				plugin.getLogger().warning("Timed out while saving shop data!");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Reads the chunks of the world that have stored shops in the background and preloads the loaded ones,
+	 * lookups in the world are not loaded until then
+	 *
+	 * @param worldName name of the world that was loaded
+	 */
+	public void loadWorld(String worldName) {
+		if (scannedWorlds.contains(worldName) || !scanningWorlds.add(worldName))
+			return;
+
+		writer.execute(() -> {
+			List<ShopChunk> stored;
+			try {
+				stored = store.getChunksWithData(worldName);
+			} catch (RuntimeException e) {
+				scanningWorlds.remove(worldName);
+				plugin.getLogger().log(Level.SEVERE, "Could not read the shop data of " + worldName + "!", e);
+				return;
+			}
+
+			runSync(() -> {
+				Set<Long> index = getIndex(worldName);
+				for (ShopChunk chunk : stored) {
+					index.add(pack(chunk.getX(), chunk.getZ()));
+				}
+
+				scannedWorlds.add(worldName);
+				scanningWorlds.remove(worldName);
+				plugin.getShopIndex().trackWorld(worldName, stored);
+
+				for (ShopChunk chunk : stored) {
+					ChunkEntry entry = chunks.get(chunk);
+
+					if (entry != null && entry.complete)
+						plugin.getShopIndex().setPending(chunk, false);
+					else if (chunk.isLoaded())
+						preload(chunk);
+				}
+			});
+		});
+	}
+
+	/**
+	 * Returns the shop with its sign at the specified location, never reads from the store
+	 *
+	 * @param loc Location of the shop sign
+	 * @return the Shop or null if there is no shop at the location or its chunk is not loaded yet, see {@link #isLoaded(ShopLocation)}
+	 */
+	public Shop getShop(ShopLocation loc) {
+		ShopChunk chunk = getChunk(loc);
+
+		if (!hasData(chunk))
+			return null;
+
+		ChunkEntry entry = getEntry(chunk);
+		Shop shop = entry.shops.get(loc.serialize());
+
+		// The rest of the chunk is read in the background, the shop is unknown until then
+		if (shop == null)
+			complete(entry);
+
+		return shop;
+	}
+
+	/**
+	 * Returns true if {@link #getShop(ShopLocation)} knows every shop at the location, false while
+	 * the world or chunk is still being read
+	 *
+	 * @param loc Location of the shop sign
+	 * @return true if a missing shop means there is no shop at the location
+	 */
+	public boolean isLoaded(ShopLocation loc) {
+		ShopChunk chunk = getChunk(loc);
+
+		if (!scannedWorlds.contains(chunk.getWorldName()))
+			return false;
+
+		ChunkEntry entry = chunks.get(chunk);
+		return entry != null ? entry.complete : !hasData(chunk);
+	}
+
+	/**
+	 * Stores the shop in memory and schedules its chunk to be written
+	 *
+	 * @param shop Shop to save
+	 */
+	public void saveShop(Shop shop) {
+		ChunkEntry entry = getEntry(getChunk(shop.getShopLocationAsSL()));
+		String key = shop.getShopLocationAsSL().serialize();
+
+		Shop replaced = entry.shops.put(key, shop);
+		entry.removed.remove(key);
+		entry.dirty = true;
+		complete(entry);
+		plugin.getStorageCache().invalidate(shop.getInventoryLocationAsSL());
+
+		if (replaced != null && replaced != shop) {
+			plugin.getStorageCache().invalidate(replaced.getInventoryLocationAsSL());
+			plugin.getShopIndex().remove(replaced);
+		}
+		// Added again on every save since the storage block may have moved
+		plugin.getShopIndex().add(shop);
+		getIndex(entry.chunk.getWorldName()).add(pack(entry.chunk.getX(), entry.chunk.getZ()));
+	}
+
+	/**
+	 * Removes the shop with its sign at the specified location and schedules its chunk to be written
+	 *
+	 * @param loc Location of the shop sign
+	 */
+	public void removeShop(ShopLocation loc) {
+		ShopChunk chunk = getChunk(loc);
+
+		if (!hasData(chunk))
+			return;
+
+		ChunkEntry entry = getEntry(chunk);
+		String key = loc.serialize();
+
+		Shop removed = entry.shops.remove(key);
+		if (removed != null) {
+			entry.dirty = true;
+			plugin.getStorageCache().invalidate(removed.getInventoryLocationAsSL());
+			plugin.getShopIndex().remove(removed);
+		}
+
+		if (!entry.complete) {
+			// The shop may only be stored, it must not come back when the rest of the chunk is loaded
+			entry.removed.add(key);
+			entry.dirty = true;
+			complete(entry);
+		}
+	}
+
+	/**
+	 * Returns the amount of shops in the chunk
+	 *
+	 * @param chunk Chunk to count the shops in
+	 * @return amount of shops in the chunk
+	 */
+	public int getShopCount(ShopChunk chunk) {
+		if (!hasData(chunk))
+			return 0;
+
+		ChunkEntry entry = chunks.get(chunk);
+		if (entry != null && entry.complete)
+			return entry.shops.size();
+
+		return store.getShopCount(chunk);
+	}
+
+	/**
+	 * Finds the locations of all shops owned by the player
+	 *
+	 * @param owner    UUID of the owner
+	 * @param callback receives the sign locations of the matching shops on the main thread
+	 */
+	public void findByOwner(UUID owner, Consumer<List<ShopLocation>> callback) {
+		String uuid = owner.toString();
+		find(store -> store.findByOwner(owner), shop -> shop.getOwner() != null && uuid.equalsIgnoreCase(shop.getOwner().getUUIDString()), callback);
+	}
+
+	/**
+	 * Finds the locations of all shops with the status
+	 *
+	 * @param status   status to look for
+	 * @param callback receives the sign locations of the matching shops on the main thread
+	 */
+	public void findByStatus(ShopStatus status, Consumer<List<ShopLocation>> callback) {
+		find(store -> store.findByStatus(status), shop -> shop.getStatus() == status, callback);
+	}
+
+	/**
+	 * Finds the locations of all shops that have the material as cost or product
+	 *
+	 * @param material material to look for
+	 * @param callback receives the sign locations of the matching shops on the main thread
+	 */
+	public void findByItem(Material material, Consumer<List<ShopLocation>> callback) {
+		find(store -> store.findByItem(material), shop -> shop.getMaterials().contains(material), callback);
+	}
+
+	/**
+	 * Serializes every dirty chunk and passes it to the background writer, must be called from the main thread.
+	 * Chunks that are not loaded are evicted once they are written.
+	 */
+	public void flush() {
+		for (ChunkEntry entry : chunks.values()) {
+			if (entry.chunk.isLoaded())
+				save(entry);
+			else
+				evict(entry.chunk);
+		}
+	}
+
+	/**
+	 * Loads the shops of a chunk in the background so they are in memory before they are used
+	 *
+	 * @param chunk Chunk that was loaded
+	 */
+	public void preload(ShopChunk chunk) {
+		if (!hasData(chunk))
+			return;
+
+		ChunkEntry existing = chunks.get(chunk);
+		if ((existing != null && existing.complete) || !preloading.add(chunk))
+			return;
+
+		// Runs on the writer so any write queued for the chunk has finished before it is read
+		writer.execute(() -> {
+			Map<String, Shop> loaded;
+			try {
+				loaded = store.loadShops(chunk);
+			} catch (RuntimeException e) {
+				preloading.remove(chunk);
+				plugin.getLogger().log(Level.SEVERE, "Could not load shop data for " + chunk.serialize() + "!", e);
+				return;
+			}
+
+			runSync(() -> {
+				preloading.remove(chunk);
+
+				if (chunk.isLoaded())
+					install(getEntry(chunk), loaded);
+			});
+		});
+	}
+
+	/**
+	 * Writes the changes of a chunk and removes it from memory once the write has finished,
+	 * until then lookups are still answered from memory
+	 *
+	 * @param chunk Chunk that was unloaded
+	 */
+	public void evict(ShopChunk chunk) {
+		ChunkEntry entry = chunks.get(chunk);
+
+		if (entry == null)
+			return;
+
+		save(entry);
+		writer.execute(() -> runSync(() -> {
+			if (!entry.dirty && !entry.completing && !chunk.isLoaded() && chunks.remove(chunk, entry)) {
+				for (Shop shop : entry.shops.values()) {
+					plugin.getStorageCache().invalidate(shop.getInventoryLocationAsSL());
+					plugin.getShopIndex().remove(shop);
+				}
+
+				plugin.getShopIndex().setPending(chunk, hasData(chunk));
+			}
+		}));
+	}
+
+	/**
+	 * Serializes the entry and passes it to the background writer if it has changes, incomplete
+	 * entries are kept dirty until the rest of their chunk is loaded
+	 */
+	private void save(ChunkEntry entry) {
+		if (!entry.dirty)
+			return;
+
+		if (!entry.complete) {
+			complete(entry);
+			return;
+		}
+
+		entry.dirty = false;
+
+		if (entry.shops.isEmpty()) {
+			getIndex(entry.chunk.getWorldName()).remove(pack(entry.chunk.getX(), entry.chunk.getZ()));
+		}
+
+		List<ShopRecord> records = new ArrayList<>();
+		for (Shop shop : entry.shops.values()) {
+			records.add(new ShopRecord(shop));
+		}
+
+		writer.execute(() -> {
+			try {
+				store.saveShops(entry.chunk, records);
+			} catch (RuntimeException e) {
+				plugin.getLogger().log(Level.SEVERE, "Could not save shop data for " + entry.chunk.serialize() + "!", e);
+			}
+		});
+	}
+
+	private void runSync(Runnable task) {
+		// Tasks can no longer be scheduled once the plugin is disabling
+		if (plugin.isEnabled())
+			Bukkit.getScheduler().runTask(plugin, task);
+	}
+
+	private ShopChunk getChunk(ShopLocation loc) {
+		return new ShopChunk(loc);
+	}
+
+	private boolean hasData(ShopChunk chunk) {
+		return chunks.containsKey(chunk) || getIndex(chunk.getWorldName()).contains(pack(chunk.getX(), chunk.getZ()));
+	}
+
+	private Set<Long> getIndex(String worldName) {
+		return chunksWithData.computeIfAbsent(worldName, name -> ConcurrentHashMap.newKeySet());
+	}
+
+	/**
+	 * Runs a query against the store on the background writer, chunks held in memory are answered
+	 * from memory instead since they may have changes that have not been written yet
+	 */
+	private void find(Function<ShopDataStore, List<String>> query, Predicate<Shop> filter, Consumer<List<ShopLocation>> callback) {
+		writer.execute(() -> {
+			List<String> stored;
+			try {
+				stored = query.apply(store);
+			} catch (RuntimeException e) {
+				plugin.getLogger().log(Level.SEVERE, "Could not search the shop data!", e);
+				return;
+			}
+
+			runSync(() -> callback.accept(merge(stored, filter)));
+		});
+	}
+
+	private List<ShopLocation> merge(List<String> stored, Predicate<Shop> filter) {
+		Set<String> found = new LinkedHashSet<>();
+
+		for (String key : stored) {
+			ShopLocation loc = ShopLocation.deserialize(key);
+			ChunkEntry entry = loc != null ? chunks.get(getChunk(loc)) : null;
+			if (loc != null && (entry == null || !entry.complete))
+				found.add(key);
+		}
+
+		for (ChunkEntry entry : chunks.values()) {
+			if (!entry.complete)
+				continue;
+
+			for (Map.Entry<String, Shop> shop : entry.shops.entrySet()) {
+				if (filter.test(shop.getValue()))
+					found.add(shop.getKey());
+			}
+		}
+
+		List<ShopLocation> locations = new ArrayList<>();
+		for (String key : found) {
+			locations.add(ShopLocation.deserialize(key));
+		}
+
+		return locations;
+	}
+
+	private static long pack(int x, int z) {
+		return ((long) x << 32) | (z & 0xFFFFFFFFL);
+	}
+
+	private ChunkEntry getEntry(ShopChunk chunk) {
+		return chunks.computeIfAbsent(chunk, ChunkEntry::new);
+	}
+
+	/**
+	 * Loads the rest of the chunks shops into the entry in the background, needed before the chunk
+	 * can be written since the whole chunk is written at once. Shops already in memory are kept.
+	 */
+	private void complete(ChunkEntry entry) {
+		if (entry.complete || entry.completing)
+			return;
+
+		// Entries are created before their chunk is indexed, only the index of a read world tells if anything is stored
+		if (scannedWorlds.contains(entry.chunk.getWorldName())
+				&& !getIndex(entry.chunk.getWorldName()).contains(pack(entry.chunk.getX(), entry.chunk.getZ()))) {
+			entry.complete = true;
+			return;
+		}
+
+		entry.completing = true;
+
+		// Runs on the writer so any write queued for the chunk has finished before it is read
+		writer.execute(() -> {
+			Map<String, Shop> loaded;
+			try {
+				loaded = store.loadShops(entry.chunk);
+			} catch (RuntimeException e) {
+				plugin.getLogger().log(Level.SEVERE, "Could not load shop data for " + entry.chunk.serialize() + "!", e);
+				runSync(() -> entry.completing = false);
+				return;
+			}
+
+			runSync(() -> {
+				entry.completing = false;
+				if (chunks.get(entry.chunk) == entry)
+					install(entry, loaded);
+			});
+		});
+	}
+
+	/**
+	 * Adds the loaded shops to an entry and marks it complete, shops already in memory or removed
+	 * while the entry was incomplete are kept as they are
+	 */
+	private void install(ChunkEntry entry, Map<String, Shop> loaded) {
+		if (entry.complete)
+			return;
+
+		for (Map.Entry<String, Shop> shop : loaded.entrySet()) {
+			if (!entry.shops.containsKey(shop.getKey()) && !entry.removed.contains(shop.getKey())) {
+				shop.getValue().fixAfterLoad();
+				entry.shops.put(shop.getKey(), shop.getValue());
+			}
+		}
+
+		entry.complete = true;
+		entry.removed.clear();
+
+		for (Shop shop : entry.shops.values()) {
+			plugin.getShopIndex().add(shop);
+		}
+		plugin.getShopIndex().setPending(entry.chunk, false);
+	}
+
+	private static class ChunkEntry {
+
+		private final ShopChunk chunk;
+		private final Map<String, Shop> shops = new LinkedHashMap<>();
+		private final Set<String> removed = new HashSet<>();
+		private volatile boolean dirty;
+		private boolean complete, completing;
+
+		private ChunkEntry(ShopChunk chunk) {
+			this.chunk = chunk;
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.scheduler.BukkitTask;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.utils.Utils;
+
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Collects shops whose signs need to be rendered and renders each of them once on the next tick.
+ * <p>
+ * A shop can request a render any number of times during a tick, the sign is only written once
+ * and only if its text changed. Must only be used on the main thread.
+ * </p>
+ */
+public class SignRenderQueue extends Utils {
+
+	private final Set<Shop> dirty = new LinkedHashSet<>();
+	private BukkitTask drainTask;
+
+	/**
+	 * Queues the sign of the shop to be rendered on the next tick
+	 *
+	 * @param shop shop whose sign changed
+	 */
+	public void queue(Shop shop) {
+		if (dirty.add(shop) && drainTask == null && plugin.isEnabled()) {
+			drainTask = Bukkit.getScheduler().runTask(plugin, this::drain);
+		}
+	}
+
+	/**
+	 * Removes the shop from the queue, used when the shop is removed before its sign was rendered
+	 *
+	 * @param shop shop to remove
+	 */
+	public void cancel(Shop shop) {
+		dirty.remove(shop);
+	}
+
+	/**
+	 * Renders the signs of all queued shops now
+	 */
+	public void drain() {
+		drainTask = null;
+
+		if (dirty.isEmpty())
+			return;
+
+		List<Shop> shops = new ArrayList<>(dirty);
+		dirty.clear();
+
+		for (Shop shop : shops) {
+			shop.renderSign();
+		}
+	}
+
+	/**
+	 * Renders all queued signs and stops the queue, should only be used while the plugin is disabling
+	 */
+	public void shutdown() {
+		if (drainTask != null) {
+			drainTask.cancel();
+		}
+
+		drain();
+	}
+}
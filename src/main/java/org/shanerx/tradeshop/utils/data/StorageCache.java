@@ -0,0 +1,185 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Location;
+import org.bukkit.block.Block;
+import org.shanerx.tradeshop.enumys.DebugLevels;
+import org.shanerx.tradeshop.enumys.Setting;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChest;
+import org.shanerx.tradeshop.objects.ShopChestTag;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.utils.Utils;
+
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Remembers for every storage block that inventory events happened at whether it belongs to a shop.
+ * <p>
+ * The first lookup of a block reads its shop tag and loads the shop, later
+ * lookups are answered from memory. Entries are dropped when a shop using the block is saved,
+ * removed or unloaded, when the chunk of the block unloads and when the configuration is reloaded.
+ * </p>
+ * <p>
+ * Must only be used on the main thread.
+ * </p>
+ */
+public class StorageCache extends Utils {
+
+	private static final Decision NOT_A_SHOP = new Decision(null, false);
+
+	private final Map<ShopChunk, Map<Integer, Decision>> decisions = new HashMap<>();
+
+	/**
+	 * Returns the decision for the block at the location of an inventory
+	 *
+	 * @param location location of the inventory, may be null
+	 * @return the decision, never null
+	 */
+	public Decision get(Location location) {
+		if (location == null || location.getWorld() == null)
+			return NOT_A_SHOP;
+
+		int x = location.getBlockX(), y = location.getBlockY(), z = location.getBlockZ();
+		Map<Integer, Decision> chunk = decisions.computeIfAbsent(new ShopChunk(location.getWorld(), x >> 4, z >> 4), key -> new HashMap<>());
+		Decision decision = chunk.get(pack(x, y, z));
+
+		if (decision == null) {
+			decision = decide(location.getBlock());
+			chunk.put(pack(x, y, z), decision);
+		}
+
+		return decision;
+	}
+
+	/**
+	 * Drops the decision of a storage block, blocks next to it are dropped too since double chests
+	 * report the location of either half
+	 *
+	 * @param loc location of the storage block, may be null
+	 */
+	public void invalidate(ShopLocation loc) {
+		if (loc == null)
+			return;
+
+		int x = (int) Math.floor(loc.getX()), y = (int) Math.floor(loc.getY()), z = (int) Math.floor(loc.getZ());
+
+		invalidate(loc.getWorldName(), x, y, z);
+		invalidate(loc.getWorldName(), x + 1, y, z);
+		invalidate(loc.getWorldName(), x - 1, y, z);
+		invalidate(loc.getWorldName(), x, y, z + 1);
+		invalidate(loc.getWorldName(), x, y, z - 1);
+	}
+
+	/**
+	 * Drops all decisions of a chunk
+	 *
+	 * @param chunk chunk that was unloaded
+	 */
+	public void invalidate(ShopChunk chunk) {
+		decisions.remove(chunk);
+	}
+
+	/**
+	 * Drops every decision, used when settings that decisions depend on change
+	 */
+	public void clear() {
+		decisions.clear();
+	}
+
+	private void invalidate(String worldName, int x, int y, int z) {
+		Map<Integer, Decision> chunk = decisions.get(new ShopChunk(worldName, x >> 4, z >> 4));
+
+		if (chunk != null)
+			chunk.remove(pack(x, y, z));
+	}
+
+	private Decision decide(Block block) {
+		if (!plugin.getShopIndex().mayBeShop(block) || !plugin.getListManager().isInventory(block))
+			return NOT_A_SHOP;
+
+		Shop shop = plugin.getShopIndex().getStorageShop(block);
+
+		if (shop == null) {
+			// Not indexed as the storage block, e.g. the other half of a double chest
+			ShopChestTag tag = ShopChest.readTag(block);
+
+			if (tag == null || tag.getSign() == null)
+				return NOT_A_SHOP;
+
+			shop = Shop.loadShop(tag.getSign());
+		}
+
+		if (shop == null || shop.getShopType().isITrade())
+			return NOT_A_SHOP;
+
+		boolean exportAllowed = Setting.findSetting(shop.getShopType().name() + "SHOP_HOPPER_EXPORT").getBoolean();
+		debugger.log("StorageCache: Shop Location as SL > " + shop.getInventoryLocationAsSL().serialize(), DebugLevels.PROTECTION);
+		debugger.log("StorageCache: export allowed > " + exportAllowed, DebugLevels.PROTECTION);
+
+		return new Decision(shop, exportAllowed);
+	}
+
+	/**
+	 * Packs the position of a block inside its chunk
+	 */
+	private static int pack(int x, int y, int z) {
+		return (y << 8) | ((z & 15) << 4) | (x & 15);
+	}
+
+	/**
+	 * Whether a storage block belongs to a shop and if hoppers may take items out of it
+	 */
+	public static final class Decision {
+
+		private final Shop shop;
+		private final boolean exportAllowed;
+
+		private Decision(Shop shop, boolean exportAllowed) {
+			this.shop = shop;
+			this.exportAllowed = exportAllowed;
+		}
+
+		public boolean isShop() {
+			return shop != null;
+		}
+
+		/**
+		 * @return the shop using the block, null if the block is not a shop storage
+		 */
+		public Shop getShop() {
+			return shop;
+		}
+
+		public boolean isExportAllowed() {
+			return exportAllowed;
+		}
+	}
+}
@@ -0,0 +1,81 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.gsonprocessing;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.objects.ShopUser;
+
+/**
+ * Holds the Gson instances used for all shop and player data.
+ * <p>
+ * Gson instances are thread safe, so they are created once and shared instead of being
+ * built for every file or shop. The shop model is handled by streaming TypeAdapters
+ * that write the same fields the reflective serialization used to write.
+ * </p>
+ */
+public class GsonProcessor {
+
+	private static final Gson gson = newBuilder().create();
+	private static final Gson prettyGson = newBuilder().setPrettyPrinting().create();
+
+	/**
+	 * Returns the shared Gson instance, output is not pretty printed
+	 *
+	 * @return the shared Gson
+	 */
+	public static Gson getGson() {
+		return gson;
+	}
+
+	/**
+	 * Returns the shared pretty printing Gson instance, for output meant to be read by people
+	 *
+	 * @return the shared pretty printing Gson
+	 */
+	public static Gson getPrettyGson() {
+		return prettyGson;
+	}
+
+	/**
+	 * Creates a GsonBuilder with every TypeAdapter registered
+	 *
+	 * @return a new GsonBuilder
+	 */
+	public static GsonBuilder newBuilder() {
+		return new GsonBuilder()
+				.registerTypeAdapter(Shop.class, new ShopAdapter())
+				.registerTypeAdapter(ShopLocation.class, new ShopLocationAdapter())
+				.registerTypeAdapter(ShopUser.class, new ShopUserAdapter())
+				.registerTypeAdapter(ShopType.class, new ShopTypeAdapter())
+				.enableComplexMapKeySerialization()
+				.serializeNulls();
+	}
+}
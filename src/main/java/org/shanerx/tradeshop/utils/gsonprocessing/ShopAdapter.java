@@ -0,0 +1,284 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.gsonprocessing;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.bukkit.Material;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.ItemLine;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.objects.ShopUser;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * Reads and writes Shops with the same field names and order the reflective serialization used.
+ * <p>
+ * Unknown fields are skipped, legacy fields like "productB64" are fixed by
+ * {@link org.shanerx.tradeshop.utils.JsonConfiguration} before a shop is read. The stack lists
+ * "productListB64" and "costListB64" of older versions are only used if the shop has no item lines.
+ * </p>
+ */
+public class ShopAdapter extends TypeAdapter<Shop> {
+
+	private final ShopUserAdapter userAdapter = new ShopUserAdapter();
+	private final ShopLocationAdapter locationAdapter = new ShopLocationAdapter();
+	private final ShopTypeAdapter typeAdapter = new ShopTypeAdapter();
+
+	@Override
+	public void write(JsonWriter out, Shop value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		out.name("owner");
+		userAdapter.write(out, value.getOwner());
+		out.name("managers");
+		writeUUIDs(out, value.getManagersUUID());
+		out.name("members");
+		writeUUIDs(out, value.getMembersUUID());
+		out.name("shopType");
+		typeAdapter.write(out, value.getShopType());
+		out.name("shopLoc");
+		locationAdapter.write(out, value.getShopLocationAsSL());
+		out.name("chestLoc");
+		locationAdapter.write(out, value.getInventoryLocationAsSL());
+		out.name("productLines");
+		writeLines(out, value.getProductLines());
+		out.name("costLines");
+		writeLines(out, value.getCostLines());
+
+		// Items of older versions are kept until the shop decodes them
+		if (value.getProductListB64() != null) {
+			out.name("productListB64");
+			writeStrings(out, value.getProductListB64());
+		}
+		if (value.getCostListB64() != null) {
+			out.name("costListB64");
+			writeStrings(out, value.getCostListB64());
+		}
+		out.name("status").value(value.getStatus() != null ? value.getStatus().name() : null);
+		out.endObject();
+	}
+
+	@Override
+	public Shop read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		ShopUser owner = null;
+		List<UUID> managers = new ArrayList<>(), members = new ArrayList<>();
+		ShopType shopType = null;
+		ShopLocation shopLoc = null, chestLoc = null;
+		List<ItemLine> productLines = null, costLines = null;
+		List<String> productListB64 = new ArrayList<>(), costListB64 = new ArrayList<>();
+		ShopStatus status = ShopStatus.INCOMPLETE;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			String name = in.nextName();
+
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			switch (name) {
+				case "owner":
+					owner = userAdapter.read(in);
+					break;
+				case "managers":
+					managers = readUUIDs(in);
+					break;
+				case "members":
+					members = readUUIDs(in);
+					break;
+				case "shopType":
+					shopType = typeAdapter.read(in);
+					break;
+				case "shopLoc":
+					shopLoc = locationAdapter.read(in);
+					break;
+				case "chestLoc":
+					chestLoc = locationAdapter.read(in);
+					break;
+				case "productLines":
+					productLines = readLines(in);
+					break;
+				case "costLines":
+					costLines = readLines(in);
+					break;
+				case "productListB64":
+					productListB64 = readStrings(in);
+					break;
+				case "costListB64":
+					costListB64 = readStrings(in);
+					break;
+				case "status":
+					String statusName = in.nextString();
+					for (ShopStatus shopStatus : ShopStatus.values()) {
+						if (shopStatus.name().equals(statusName))
+							status = shopStatus;
+					}
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new Shop(owner, shopType, shopLoc, chestLoc, managers, members, productLines, costLines, productListB64, costListB64, status);
+	}
+
+	private void writeUUIDs(JsonWriter out, List<UUID> uuids) throws IOException {
+		if (uuids == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginArray();
+		for (UUID uuid : uuids) {
+			out.value(uuid != null ? uuid.toString() : null);
+		}
+		out.endArray();
+	}
+
+	private List<UUID> readUUIDs(JsonReader in) throws IOException {
+		List<UUID> uuids = new ArrayList<>();
+
+		in.beginArray();
+		while (in.hasNext()) {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			uuids.add(UUID.fromString(in.nextString()));
+		}
+		in.endArray();
+
+		return uuids;
+	}
+
+	private void writeLines(JsonWriter out, List<ItemLine> lines) throws IOException {
+		if (lines == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginArray();
+		for (ItemLine line : lines) {
+			out.beginObject();
+			out.name("item").value(line.getItem());
+			out.name("amount").value(line.getAmount());
+			if (line.getType() != null)
+				out.name("type").value(line.getType().name());
+			out.endObject();
+		}
+		out.endArray();
+	}
+
+	private List<ItemLine> readLines(JsonReader in) throws IOException {
+		List<ItemLine> lines = new ArrayList<>();
+
+		in.beginArray();
+		while (in.hasNext()) {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			String item = null;
+			int amount = 0;
+			Material type = null;
+
+			in.beginObject();
+			while (in.hasNext()) {
+				String name = in.nextName();
+
+				if (name.equals("item") && in.peek() == JsonToken.STRING) {
+					item = in.nextString();
+				} else if (name.equals("amount") && in.peek() == JsonToken.NUMBER) {
+					amount = in.nextInt();
+				} else if (name.equals("type") && in.peek() == JsonToken.STRING) {
+					type = Material.getMaterial(in.nextString());
+				} else {
+					in.skipValue();
+				}
+			}
+			in.endObject();
+
+			if (item != null && amount > 0)
+				lines.add(new ItemLine(item, amount, type));
+		}
+		in.endArray();
+
+		return lines;
+	}
+
+	private void writeStrings(JsonWriter out, List<String> strings) throws IOException {
+		if (strings == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginArray();
+		for (String string : strings) {
+			out.value(string);
+		}
+		out.endArray();
+	}
+
+	private List<String> readStrings(JsonReader in) throws IOException {
+		List<String> strings = new ArrayList<>();
+
+		in.beginArray();
+		while (in.hasNext()) {
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			strings.add(in.nextString());
+		}
+		in.endArray();
+
+		return strings;
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.gsonprocessing;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.shanerx.tradeshop.objects.ShopLocation;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes ShopLocations, "div" is still written so older versions can read the data.
+ */
+public class ShopLocationAdapter extends TypeAdapter<ShopLocation> {
+
+	@Override
+	public void write(JsonWriter out, ShopLocation value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		out.name("div").value("_");
+		out.name("worldName").value(value.getWorldName());
+		out.name("x").value(value.getX());
+		out.name("y").value(value.getY());
+		out.name("z").value(value.getZ());
+		out.endObject();
+	}
+
+	@Override
+	public ShopLocation read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		String worldName = null;
+		double x = 0, y = 0, z = 0;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			String name = in.nextName();
+
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			switch (name) {
+				case "worldName":
+					worldName = in.nextString();
+					break;
+				case "x":
+					x = in.nextDouble();
+					break;
+				case "y":
+					y = in.nextDouble();
+					break;
+				case "z":
+					z = in.nextDouble();
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new ShopLocation(worldName, x, y, z);
+	}
+}
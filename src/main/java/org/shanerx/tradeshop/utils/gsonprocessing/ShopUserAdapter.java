@@ -0,0 +1,95 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.gsonprocessing;
+
+import com.google.gson.TypeAdapter;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import org.shanerx.tradeshop.enumys.ShopRole;
+import org.shanerx.tradeshop.objects.ShopUser;
+
+import java.io.IOException;
+
+/**
+ * Reads and writes ShopUsers as the players UUID and role, the player is looked up when first used.
+ * Only the stored fields are written since shops are serialized by the background writer.
+ */
+public class ShopUserAdapter extends TypeAdapter<ShopUser> {
+
+	@Override
+	public void write(JsonWriter out, ShopUser value) throws IOException {
+		if (value == null) {
+			out.nullValue();
+			return;
+		}
+
+		out.beginObject();
+		out.name("player").value(value.getUUIDString());
+		out.name("role").value(value.getRole() != null ? value.getRole().name() : null);
+		out.endObject();
+	}
+
+	@Override
+	public ShopUser read(JsonReader in) throws IOException {
+		if (in.peek() == JsonToken.NULL) {
+			in.nextNull();
+			return null;
+		}
+
+		String player = null;
+		ShopRole role = null;
+
+		in.beginObject();
+		while (in.hasNext()) {
+			String name = in.nextName();
+
+			if (in.peek() == JsonToken.NULL) {
+				in.nextNull();
+				continue;
+			}
+
+			switch (name) {
+				case "player":
+					player = in.nextString();
+					break;
+				case "role":
+					String roleName = in.nextString();
+					for (ShopRole shopRole : ShopRole.values()) {
+						if (shopRole.name().equals(roleName))
+							role = shopRole;
+					}
+					break;
+				default:
+					in.skipValue();
+			}
+		}
+		in.endObject();
+
+		return new ShopUser(player, role);
+	}
+}
@@ -0,0 +1,233 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.Deque;
+import java.util.List;
+
+/**
+ * Planned contents of a single inventory.
+ * <p>
+ * The plan keeps the stacks of the inventory together with a primitive array of their planned
+ * amounts, the stacks themselves are never changed or copied while planning. Every slot that is
+ * changed by the plan is tracked so that {@link #apply(Inventory)} only writes those slots, which
+ * is also the only time stacks are copied.
+ * </p>
+ * <p>
+ * Plans are pooled, {@link #acquire(ItemStack[])} and {@link #release()} must only be used on the main thread.
+ * </p>
+ */
+public class InventoryPlan {
+
+	private static final int POOL_SIZE = 8;
+	private static final Deque<InventoryPlan> pool = new ArrayDeque<>();
+
+	private ItemStack[] stacks = new ItemStack[0], origins = new ItemStack[0];
+	private int[] amounts = new int[0], originAmounts = new int[0];
+	private boolean[] changed = new boolean[0];
+	private int size;
+
+	private InventoryPlan() {
+	}
+
+	/**
+	 * Returns a plan for the contents of an inventory, reusing a released plan if there is one
+	 *
+	 * @param storageContents storage contents of the inventory, the array and its stacks are not changed
+	 * @return plan of the contents
+	 */
+	public static InventoryPlan acquire(ItemStack[] storageContents) {
+		InventoryPlan plan = pool.poll();
+
+		if (plan == null)
+			plan = new InventoryPlan();
+
+		plan.reset(storageContents);
+		return plan;
+	}
+
+	/**
+	 * Returns the plan to the pool, the plan must not be used afterwards
+	 */
+	public void release() {
+		Arrays.fill(stacks, 0, size, null);
+		Arrays.fill(origins, 0, size, null);
+		size = 0;
+
+		if (pool.size() < POOL_SIZE)
+			pool.push(this);
+	}
+
+	private void reset(ItemStack[] storageContents) {
+		size = storageContents.length;
+
+		if (stacks.length < size) {
+			stacks = new ItemStack[size];
+			origins = new ItemStack[size];
+			amounts = new int[size];
+			originAmounts = new int[size];
+			changed = new boolean[size];
+		}
+
+		for (int slot = 0; slot < size; slot++) {
+			ItemStack stack = storageContents[slot];
+
+			stacks[slot] = origins[slot] = stack;
+			amounts[slot] = originAmounts[slot] = amountOf(stack);
+			changed[slot] = false;
+		}
+	}
+
+	/**
+	 * Plans the removal of every item times the multiplier in a single scan of the contents
+	 *
+	 * @param items      keys of the items to remove
+	 * @param multiplier amount of times each item is removed
+	 * @param taken      List the removed stacks are added to, each stack keeps the meta of the slot it came from, may be null
+	 * @return index of the first item that could not be removed completely, -1 if everything was removed
+	 */
+	public int take(List<ItemKey> items, int multiplier, List<ItemStack> taken) {
+		int[] needed = new int[items.size()];
+		int missing = 0;
+
+		for (int i = 0; i < needed.length; i++) {
+			needed[i] = items.get(i).getAmount() * multiplier;
+			missing += needed[i];
+		}
+
+		for (int slot = 0; slot < size && missing > 0; slot++) {
+			for (int i = 0; i < needed.length && amounts[slot] > 0; i++) {
+				if (needed[i] == 0 || !items.get(i).matches(stacks[slot]))
+					continue;
+
+				int amount = Math.min(needed[i], amounts[slot]);
+
+				if (taken != null) {
+					ItemStack removed = stacks[slot].clone();
+					removed.setAmount(amount);
+					taken.add(removed);
+				}
+
+				amounts[slot] -= amount;
+				changed[slot] = true;
+				needed[i] -= amount;
+				missing -= amount;
+			}
+		}
+
+		for (int i = 0; i < needed.length; i++) {
+			if (needed[i] > 0)
+				return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * Plans adding an amount of the item, partial stacks are filled before empty slots are used like {@link Inventory#addItem}
+	 *
+	 * @param item   item to add, the stack is not changed
+	 * @param amount amount to add, may be more than a stack
+	 * @return amount that did not fit
+	 */
+	public int give(ItemStack item, int amount) {
+		int maxStack = item.getMaxStackSize();
+
+		for (int slot = 0; slot < size && amount > 0; slot++) {
+			if (amounts[slot] > 0 && amounts[slot] < maxStack && stacks[slot].isSimilar(item)) {
+				int added = Math.min(maxStack - amounts[slot], amount);
+				amounts[slot] += added;
+				changed[slot] = true;
+				amount -= added;
+			}
+		}
+
+		for (int slot = 0; slot < size && amount > 0; slot++) {
+			if (amounts[slot] == 0) {
+				int added = Math.min(maxStack, amount);
+				stacks[slot] = item;
+				amounts[slot] = added;
+				changed[slot] = true;
+				amount -= added;
+			}
+		}
+
+		return amount;
+	}
+
+	/**
+	 * Returns true if every slot changed by the plan still holds the stack and amount it was planned from.
+	 * Changes made to the meta of a stack in place are not detected.
+	 *
+	 * @param inventory inventory the plan was made for
+	 * @return true if the plan can be applied without overwriting other changes
+	 */
+	public boolean isCurrent(Inventory inventory) {
+		for (int slot = 0; slot < size; slot++) {
+			if (!changed[slot])
+				continue;
+
+			ItemStack stack = inventory.getItem(slot);
+			int amount = amountOf(stack);
+
+			if (amount != originAmounts[slot] || (amount > 0 && !stack.isSimilar(origins[slot])))
+				return false;
+		}
+
+		return true;
+	}
+
+	/**
+	 * Writes every changed slot to the inventory
+	 *
+	 * @param inventory inventory the plan was made for
+	 */
+	public void apply(Inventory inventory) {
+		for (int slot = 0; slot < size; slot++) {
+			if (!changed[slot])
+				continue;
+
+			if (amounts[slot] == 0) {
+				inventory.setItem(slot, null);
+			} else {
+				ItemStack stack = stacks[slot].clone();
+				stack.setAmount(amounts[slot]);
+				inventory.setItem(slot, stack);
+			}
+		}
+	}
+
+	private static int amountOf(ItemStack stack) {
+		return stack == null || stack.getType() == Material.AIR ? 0 : stack.getAmount();
+	}
+}
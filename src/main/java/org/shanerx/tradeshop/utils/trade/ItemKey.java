@@ -0,0 +1,157 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.ItemStack;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Precomputed equivalence key of a shop item.
+ * <p>
+ * The key holds the material of the item and a fingerprint of its meta, both are computed once
+ * when the key is created. Stacks are compared against the key without changing either stack,
+ * the full meta comparison of {@link ItemStack#isSimilar(ItemStack)} only runs once the cheap
+ * checks can no longer tell the stacks apart.
+ * </p>
+ */
+public final class ItemKey {
+
+	private final ItemStack item;
+	private final Material type;
+	private final boolean hasMeta;
+	private final int metaHash;
+
+	private ItemKey(ItemStack item) {
+		this.item = item;
+		type = item.getType();
+		hasMeta = item.hasItemMeta();
+		metaHash = hasMeta ? item.getItemMeta().hashCode() : 0;
+	}
+
+	/**
+	 * Creates the key of an item
+	 *
+	 * @param item item to create the key for, the stack must not be changed while the key is used
+	 * @return key of the item
+	 */
+	public static ItemKey of(ItemStack item) {
+		return new ItemKey(item);
+	}
+
+	/**
+	 * Creates the keys of every item in a list
+	 *
+	 * @param items items to create keys for
+	 * @return unmodifiable list of keys in the same order as the items
+	 */
+	public static List<ItemKey> of(List<ItemStack> items) {
+		List<ItemKey> keys = new ArrayList<>(items.size());
+
+		for (ItemStack item : items) {
+			keys.add(new ItemKey(item));
+		}
+
+		return Collections.unmodifiableList(keys);
+	}
+
+	/**
+	 * Returns true if the stack can be traded as the item, neither stack is changed
+	 * <p>
+	 * Items without meta accept any stack of the same material, like the old itemCheck did.
+	 * </p>
+	 *
+	 * @param item  item that is wanted
+	 * @param stack stack that is offered
+	 * @return true if the stack is equivalent to the item
+	 */
+	public static boolean matches(ItemStack item, ItemStack stack) {
+		if (item == null || stack == null || item.getType() != stack.getType())
+			return false;
+
+		return !item.hasItemMeta() || (stack.hasItemMeta() && item.isSimilar(stack));
+	}
+
+	/**
+	 * Returns true if the stack can be traded as the item of this key
+	 *
+	 * @param stack stack that is offered
+	 * @return true if the stack is equivalent to the item
+	 */
+	public boolean matches(ItemStack stack) {
+		if (stack == null || stack.getType() != type)
+			return false;
+
+		return !hasMeta || (stack.hasItemMeta() && item.isSimilar(stack));
+	}
+
+	/**
+	 * Returns true if both keys describe equivalent items
+	 *
+	 * @param other key to compare to
+	 * @return true if the items of both keys are equivalent
+	 */
+	public boolean matches(ItemKey other) {
+		if (other == this)
+			return true;
+
+		if (other.type != type || other.hasMeta != hasMeta || other.metaHash != metaHash)
+			return false;
+
+		return !hasMeta || item.isSimilar(other.item);
+	}
+
+	/**
+	 * Returns the item the key was created for, the stack must not be changed
+	 *
+	 * @return item of the key
+	 */
+	public ItemStack getItem() {
+		return item;
+	}
+
+	public Material getType() {
+		return type;
+	}
+
+	public int getAmount() {
+		return item.getAmount();
+	}
+
+	@Override
+	public boolean equals(Object o) {
+		return o instanceof ItemKey && matches((ItemKey) o);
+	}
+
+	@Override
+	public int hashCode() {
+		return 31 * type.hashCode() + metaHash;
+	}
+}
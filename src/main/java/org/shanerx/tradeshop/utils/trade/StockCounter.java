@@ -0,0 +1,172 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.shanerx.tradeshop.enumys.Setting;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Counts how much of each product a shop holds in its storage.
+ * <p>
+ * The storage is counted once, after that trades and hopper moves adjust the counts by the stacks
+ * they move. Changes that cannot be followed stack by stack, like clicks and drags in the storage
+ * inventory, mark the counter as stale so it is counted again the next time it is used. Counts
+ * also expire after {@link Setting#STOCK_RECOUNT_INTERVAL} seconds to pick up changes made by other
+ * plugins.
+ * </p>
+ */
+public class StockCounter {
+
+	private final List<ItemKey> keys = new ArrayList<>();
+	private final int[] required, available;
+	private boolean stale = true;
+	private long countedAt;
+
+	/**
+	 * Creates a counter for the products of a shop, equal products are counted together
+	 *
+	 * @param products keys of the shop products
+	 */
+	public StockCounter(List<ItemKey> products) {
+		List<Integer> amounts = new ArrayList<>();
+
+		for (ItemKey product : products) {
+			int index = keys.indexOf(product);
+
+			if (index < 0) {
+				keys.add(product);
+				amounts.add(product.getAmount());
+			} else {
+				amounts.set(index, amounts.get(index) + product.getAmount());
+			}
+		}
+
+		required = new int[keys.size()];
+		available = new int[keys.size()];
+
+		for (int i = 0; i < required.length; i++) {
+			required[i] = amounts.get(i);
+		}
+	}
+
+	/**
+	 * Returns true if the counts have to be recounted before they can be used
+	 *
+	 * @return true if the counter is stale or expired
+	 */
+	public boolean needsRecount() {
+		return stale || System.currentTimeMillis() - countedAt > Setting.STOCK_RECOUNT_INTERVAL.getInt() * 1000L;
+	}
+
+	/**
+	 * Marks the counts as unknown
+	 */
+	public void invalidate() {
+		stale = true;
+	}
+
+	/**
+	 * Counts the products in the storage inventory
+	 *
+	 * @param storage storage inventory of the shop
+	 */
+	public void recount(Inventory storage) {
+		for (int i = 0; i < available.length; i++) {
+			available[i] = 0;
+		}
+
+		for (ItemStack stack : storage.getStorageContents()) {
+			count(stack, 1);
+		}
+
+		stale = false;
+		countedAt = System.currentTimeMillis();
+	}
+
+	/**
+	 * Adds a stack that was put into the storage
+	 *
+	 * @param stack stack that was added
+	 */
+	public void add(ItemStack stack) {
+		count(stack, 1);
+	}
+
+	/**
+	 * Removes a stack that was taken from the storage
+	 *
+	 * @param stack stack that was removed
+	 */
+	public void remove(ItemStack stack) {
+		count(stack, -1);
+	}
+
+	/**
+	 * Applies the stacks a trade moved in and out of the storage
+	 *
+	 * @param plan successful plan that was applied
+	 */
+	public void apply(TradePlan plan) {
+		for (ItemStack stack : plan.getProductItems()) {
+			remove(stack);
+		}
+
+		for (ItemStack stack : plan.getCostItems()) {
+			add(stack);
+		}
+	}
+
+	/**
+	 * Returns true if the storage holds the products for at least one trade, the counter has to be
+	 * recounted first if {@link #needsRecount()} is true
+	 *
+	 * @return true if the shop is in stock
+	 */
+	public boolean hasStock() {
+		for (int i = 0; i < required.length; i++) {
+			if (available[i] < required[i])
+				return false;
+		}
+
+		return true;
+	}
+
+	private void count(ItemStack stack, int sign) {
+		if (stale || stack == null)
+			return;
+
+		for (int i = 0; i < keys.size(); i++) {
+			if (keys.get(i).matches(stack)) {
+				available[i] = Math.max(0, available[i] + sign * stack.getAmount());
+			}
+		}
+	}
+}
@@ -0,0 +1,153 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.shanerx.tradeshop.enumys.ExchangeStatus;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Result of planning a trade, holds the exact changes to both inventories so that a successful plan
+ * can be applied without checking the inventories again.
+ */
+public class TradePlan {
+
+	private final ExchangeStatus status;
+	private final ItemStack missingItem;
+	private final int multiplier;
+	private final List<ItemStack> costItems, productItems;
+	private final InventoryPlan playerPlan, shopPlan;
+	private boolean released;
+
+	TradePlan(ExchangeStatus status, ItemStack missingItem, int multiplier, List<ItemStack> costItems, List<ItemStack> productItems,
+			  InventoryPlan playerPlan, InventoryPlan shopPlan) {
+		this.status = status;
+		this.missingItem = missingItem;
+		this.multiplier = multiplier;
+		this.costItems = Collections.unmodifiableList(costItems);
+		this.productItems = Collections.unmodifiableList(productItems);
+		this.playerPlan = playerPlan;
+		this.shopPlan = shopPlan;
+	}
+
+	/**
+	 * Returns if the trade can happen or why it can't
+	 *
+	 * @return status of the planned trade
+	 */
+	public ExchangeStatus getStatus() {
+		return status;
+	}
+
+	public boolean isSuccessful() {
+		return status == ExchangeStatus.SUCCESS;
+	}
+
+	/**
+	 * Returns the item that could not be found when the player is missing cost or the shop is missing product
+	 *
+	 * @return the missing item with the full amount that was needed, null if nothing was missing
+	 */
+	public ItemStack getMissingItem() {
+		return missingItem;
+	}
+
+	public int getMultiplier() {
+		return multiplier;
+	}
+
+	/**
+	 * Returns the stacks that are taken from the player
+	 *
+	 * @return stacks paid by the player
+	 */
+	public List<ItemStack> getCostItems() {
+		return costItems;
+	}
+
+	/**
+	 * Returns the stacks that are given to the player
+	 *
+	 * @return stacks received by the player
+	 */
+	public List<ItemStack> getProductItems() {
+		return productItems;
+	}
+
+	/**
+	 * Returns true if no slot the plan changes was modified since the plan was made
+	 *
+	 * @param playerInventory inventory of the player the plan was made for
+	 * @param shopInventory   inventory of the shop the plan was made for, unused for iTrade shops
+	 * @return true if the plan can still be applied
+	 */
+	public boolean isCurrent(Inventory playerInventory, Inventory shopInventory) {
+		if (!isSuccessful() || released)
+			return false;
+
+		return playerPlan.isCurrent(playerInventory) && (shopPlan == null || shopPlan.isCurrent(shopInventory));
+	}
+
+	/**
+	 * Writes the planned contents to the live inventories, must only be used on successful plans.
+	 * The planned slots are written as they were planned, use {@link #isCurrent(Inventory, Inventory)} first
+	 * if the inventories may have changed since.
+	 *
+	 * @param playerInventory inventory of the player the plan was made for
+	 * @param shopInventory   inventory of the shop the plan was made for, unused for iTrade shops
+	 */
+	public void apply(Inventory playerInventory, Inventory shopInventory) {
+		if (!isSuccessful())
+			throw new IllegalStateException("Only successful trades can be applied");
+		if (released)
+			throw new IllegalStateException("Released trades can not be applied");
+
+		playerPlan.apply(playerInventory);
+
+		if (shopPlan != null)
+			shopPlan.apply(shopInventory);
+	}
+
+	/**
+	 * Returns the inventory plans to their pool once the plan was applied or thrown away, the plan
+	 * must not be checked or applied afterwards. The status, multiplier and items stay readable,
+	 * releasing a plan again has no effect.
+	 */
+	public void release() {
+		if (released)
+			return;
+
+		released = true;
+		if (playerPlan != null)
+			playerPlan.release();
+		if (shopPlan != null)
+			shopPlan.release();
+	}
+}
@@ -0,0 +1,234 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.Material;
+import org.bukkit.event.block.Action;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.shanerx.tradeshop.enumys.ExchangeStatus;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.Shop;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Plans trades by scanning each inventory once instead of simulating the trade on cloned inventories.
+ */
+public class TradePlanner {
+
+	/**
+	 * Plans a trade between a player and a shop
+	 *
+	 * @param shop            the shop that is traded with
+	 * @param playerInventory inventory of the player
+	 * @param shopInventory   inventory of the shop, unused for iTrade shops
+	 * @param multiplier      amount of times the trade is made
+	 * @param action          action the player used, left clicking a BiTrade shop reverses the trade
+	 * @return the planned trade
+	 */
+	public static TradePlan plan(Shop shop, Inventory playerInventory, Inventory shopInventory, int multiplier, Action action) {
+		return plan(shop, playerInventory.getStorageContents(), shopInventory == null ? null : shopInventory.getStorageContents(),
+				multiplier, isReversed(shop, action));
+	}
+
+	private static TradePlan plan(Shop shop, ItemStack[] playerContents, ItemStack[] shopContents, int multiplier, boolean reversed) {
+		boolean iTrade = shop.getShopType() == ShopType.ITRADE;
+		List<ItemKey> pays = reversed ? shop.getProductKeys() : shop.getCostKeys(),
+				gets = reversed ? shop.getCostKeys() : shop.getProductKeys();
+		List<ItemStack> costItems = new ArrayList<>(), productItems = new ArrayList<>();
+		InventoryPlan playerPlan = InventoryPlan.acquire(playerContents), shopPlan = null;
+
+		try {
+			int missing = playerPlan.take(pays, multiplier, costItems);
+			if (missing >= 0)
+				return failed(ExchangeStatus.PLAYER_NO_COST, pays.get(missing).getItem(), multiplier);
+
+			if (iTrade) {
+				// iTrade shops have unlimited product
+				for (ItemKey key : gets) {
+					ItemStack product = key.getItem().clone();
+					product.setAmount(key.getAmount() * multiplier);
+					productItems.add(product);
+				}
+			} else {
+				shopPlan = InventoryPlan.acquire(shopContents);
+
+				missing = shopPlan.take(gets, multiplier, productItems);
+				if (missing >= 0)
+					return failed(ExchangeStatus.SHOP_NO_PRODUCT, gets.get(missing).getItem(), multiplier);
+
+				for (ItemStack item : costItems) {
+					if (shopPlan.give(item, item.getAmount()) > 0)
+						return failed(ExchangeStatus.SHOP_NO_SPACE, null, multiplier);
+				}
+			}
+
+			for (ItemStack item : productItems) {
+				if (playerPlan.give(item, item.getAmount()) > 0)
+					return failed(ExchangeStatus.PLAYER_NO_SPACE, null, multiplier);
+			}
+
+			TradePlan plan = new TradePlan(ExchangeStatus.SUCCESS, null, multiplier, costItems, productItems, playerPlan, shopPlan);
+			// The plan owns the inventory plans now
+			playerPlan = shopPlan = null;
+			return plan;
+		} finally {
+			if (playerPlan != null)
+				playerPlan.release();
+			if (shopPlan != null)
+				shopPlan.release();
+		}
+	}
+
+	/**
+	 * Plans a trade with the largest multiplier both inventories can cover
+	 * <p>
+	 * Each inventory is scanned once to count the cost the player holds, the product in storage and
+	 * the free space on both sides. Those counts give an upper bound for the multiplier which is then
+	 * narrowed down with a binary search, so only a few plans are made no matter how large the bound is.
+	 * </p>
+	 *
+	 * @param shop            the shop that is traded with
+	 * @param playerInventory inventory of the player
+	 * @param shopInventory   inventory of the shop, unused for iTrade shops
+	 * @param action          action the player used, left clicking a BiTrade shop reverses the trade
+	 * @return the planned trade with the largest feasible multiplier, or the failed plan of a single trade
+	 */
+	public static TradePlan planMax(Shop shop, Inventory playerInventory, Inventory shopInventory, Action action) {
+		boolean iTrade = shop.getShopType() == ShopType.ITRADE,
+				reversed = isReversed(shop, action);
+		List<ItemKey> pays = reversed ? shop.getProductKeys() : shop.getCostKeys(),
+				gets = reversed ? shop.getCostKeys() : shop.getProductKeys();
+		ItemStack[] playerContents = playerInventory.getStorageContents(),
+				shopContents = iTrade ? null : shopInventory.getStorageContents();
+
+		int upper = Math.min(maxTimes(playerContents, pays), maxSpace(playerContents, gets, pays));
+
+		if (!iTrade) {
+			upper = Math.min(upper, Math.min(maxTimes(shopContents, gets), maxSpace(shopContents, pays, gets)));
+		}
+
+		TradePlan best = plan(shop, playerContents, shopContents, 1, reversed);
+		if (!best.isSuccessful())
+			return best;
+
+		int lower = 1;
+		while (lower < upper) {
+			int middle = lower + (upper - lower + 1) / 2;
+			TradePlan attempt = plan(shop, playerContents, shopContents, middle, reversed);
+
+			if (attempt.isSuccessful()) {
+				best.release();
+				best = attempt;
+				lower = middle;
+			} else {
+				upper = middle - 1;
+			}
+		}
+
+		return best;
+	}
+
+	private static boolean isReversed(Shop shop, Action action) {
+		return shop.getShopType() == ShopType.BITRADE && action == Action.LEFT_CLICK_BLOCK;
+	}
+
+	/**
+	 * Returns how often all items can be taken from the contents, equal items are counted together
+	 */
+	private static int maxTimes(ItemStack[] contents, List<ItemKey> items) {
+		Map<ItemKey, Integer> required = new LinkedHashMap<>();
+		for (ItemKey key : items) {
+			required.merge(key, key.getAmount(), Integer::sum);
+		}
+
+		Map<ItemKey, Integer> available = new HashMap<>();
+		for (ItemStack stack : contents) {
+			for (ItemKey key : required.keySet()) {
+				if (key.matches(stack))
+					available.merge(key, stack.getAmount(), Integer::sum);
+			}
+		}
+
+		int times = Integer.MAX_VALUE;
+		for (Map.Entry<ItemKey, Integer> entry : required.entrySet()) {
+			if (entry.getValue() > 0)
+				times = Math.min(times, available.getOrDefault(entry.getKey(), 0) / entry.getValue());
+		}
+
+		return times;
+	}
+
+	/**
+	 * Returns how often the received items fit into the contents at most, slots holding paid items are counted as free
+	 */
+	private static int maxSpace(ItemStack[] contents, List<ItemKey> received, List<ItemKey> paid) {
+		int perTrade = 0, maxStack = 0;
+		for (ItemKey key : received) {
+			perTrade += key.getAmount();
+			maxStack = Math.max(maxStack, key.getItem().getMaxStackSize());
+		}
+
+		if (perTrade == 0)
+			return Integer.MAX_VALUE;
+
+		long space = 0;
+		for (ItemStack stack : contents) {
+			if (stack == null || stack.getType() == Material.AIR || matchesAny(paid, stack))
+				space += maxStack;
+			else if (matchesAny(received, stack))
+				space += Math.max(0, maxStack - stack.getAmount());
+		}
+
+		return (int) Math.min(Integer.MAX_VALUE, space / perTrade);
+	}
+
+	private static boolean matchesAny(List<ItemKey> keys, ItemStack stack) {
+		for (ItemKey key : keys) {
+			if (key.matches(stack))
+				return true;
+		}
+
+		return false;
+	}
+
+	private static TradePlan failed(ExchangeStatus status, ItemStack item, int multiplier) {
+		ItemStack missingItem = null;
+
+		if (item != null) {
+			missingItem = item.clone();
+			missingItem.setAmount(item.getAmount() * multiplier);
+		}
+
+		return new TradePlan(status, missingItem, multiplier, new ArrayList<>(), new ArrayList<>(), null, null);
+	}
+}
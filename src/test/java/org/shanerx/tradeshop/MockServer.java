@@ -0,0 +1,93 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop;
+
+import org.bukkit.Bukkit;
+import org.bukkit.OfflinePlayer;
+import org.bukkit.Server;
+import org.bukkit.plugin.PluginManager;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.RETURNS_DEFAULTS;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+/**
+ * Installs a mocked server with a mocked TradeShop so classes that look the plugin up can be used in tests.
+ * <p>
+ * The plugin's data folder is a temporary folder shared by every test of the run.
+ * </p>
+ */
+public final class MockServer {
+
+	private static TradeShop plugin;
+
+	private MockServer() {
+	}
+
+	/**
+	 * Installs the server the first time it is called
+	 *
+	 * @return the mocked plugin
+	 */
+	public static synchronized TradeShop start() {
+		if (plugin != null)
+			return plugin;
+
+		File dataFolder;
+		try {
+			dataFolder = Files.createTempDirectory("tradeshop-test").toFile();
+		} catch (IOException e) {
+			throw new RuntimeException(e);
+		}
+		dataFolder.deleteOnExit();
+
+		Server server = mock(Server.class);
+		PluginManager pluginManager = mock(PluginManager.class);
+		plugin = mock(TradeShop.class);
+
+		when(server.getLogger()).thenReturn(Logger.getLogger("Server"));
+		when(server.getPluginManager()).thenReturn(pluginManager);
+		when(server.getOfflinePlayer(any(UUID.class))).thenAnswer(invocation -> offlinePlayer(invocation.getArgument(0)));
+		when(pluginManager.getPlugin("TradeShop")).thenReturn(plugin);
+		when(plugin.getDataFolder()).thenReturn(dataFolder);
+		when(plugin.getLogger()).thenReturn(Logger.getLogger("TradeShop"));
+		when(plugin.isEnabled()).thenReturn(true);
+
+		Bukkit.setServer(server);
+		return plugin;
+	}
+
+	private static OfflinePlayer offlinePlayer(UUID uuid) {
+		return mock(OfflinePlayer.class, invocation -> invocation.getMethod().getName().equals("getUniqueId") ? uuid : RETURNS_DEFAULTS.answer(invocation));
+	}
+}
@@ -0,0 +1,98 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.objects;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.TradeShop;
+import org.shanerx.tradeshop.utils.ItemSerializer;
+import org.shanerx.tradeshop.utils.data.ItemTemplateCache;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ItemLineTest {
+
+	@BeforeClass
+	public static void setUp() throws IOException {
+		ConfigurationSerialization.registerClass(ItemStack.class);
+		TradeShop plugin = MockServer.start();
+		ItemTemplateCache cache = mock(ItemTemplateCache.class);
+
+		when(cache.decode(anyString())).thenAnswer(invocation -> ItemSerializer.itemStackArrayFromBase64(invocation.getArgument(0)));
+		when(plugin.getItemCache()).thenReturn(cache);
+	}
+
+	private static String encodeLegacy(ItemStack item) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+			dataOutput.writeObject(item);
+		}
+		return Base64Coder.encodeLines(outputStream.toByteArray());
+	}
+
+	@Test
+	public void legacyLineIsConverted() throws IOException {
+		ItemLine legacy = new ItemLine(encodeLegacy(new ItemStack(Material.STONE)), 100, Material.STONE);
+		assertTrue(ItemSerializer.isLegacy(legacy.getItem()));
+
+		ItemLine converted = legacy.toCompact();
+
+		assertFalse(ItemSerializer.isLegacy(converted.getItem()));
+		assertEquals(100, converted.getAmount());
+		assertEquals(new ItemStack(Material.STONE, 100), converted.toItemStack());
+	}
+
+	@Test
+	public void compactLineIsKept() {
+		ItemLine line = ItemLine.of(new ItemStack(Material.DIAMOND, 5));
+
+		assertFalse(ItemSerializer.isLegacy(line.getItem()));
+		assertSame(line, line.toCompact());
+	}
+
+	@Test
+	public void undecodableLineIsKept() {
+		ItemLine line = new ItemLine("AAAA", 1, null);
+
+		assertSame(line, line.toCompact());
+	}
+}
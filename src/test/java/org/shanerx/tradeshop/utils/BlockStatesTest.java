@@ -0,0 +1,94 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils;
+
+import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.junit.Test;
+
+import java.lang.reflect.Method;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assume.assumeFalse;
+import static org.junit.Assume.assumeTrue;
+import static org.mockito.ArgumentMatchers.anyBoolean;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class BlockStatesTest {
+
+	/**
+	 * Returns {@code Block#getState(boolean)} if the API on the classpath has it
+	 */
+	private static Method getStateWithoutSnapshot() {
+		try {
+			return Block.class.getMethod("getState", boolean.class);
+		} catch (NoSuchMethodException e) {
+			return null;
+		}
+	}
+
+	@Test
+	public void snapshotFreeWhenServerHasMethod() {
+		assertEquals(getStateWithoutSnapshot() != null, BlockStates.isSnapshotFree());
+	}
+
+	@Test
+	public void snapshotTakesState() {
+		Block block = mock(Block.class);
+		BlockState state = mock(BlockState.class);
+		when(block.getState()).thenReturn(state);
+
+		assertSame(state, BlockStates.snapshot(block));
+	}
+
+	@Test
+	public void readFallsBackToSnapshot() {
+		assumeFalse(BlockStates.isSnapshotFree());
+		Block block = mock(Block.class);
+		BlockState state = mock(BlockState.class);
+		when(block.getState()).thenReturn(state);
+
+		assertSame(state, BlockStates.read(block));
+	}
+
+	@Test
+	public void readAvoidsSnapshot() throws Exception {
+		assumeTrue(BlockStates.isSnapshotFree());
+		Method getState = getStateWithoutSnapshot();
+		Block block = mock(Block.class);
+		BlockState state = mock(BlockState.class);
+		when(getState.invoke(block, anyBoolean())).thenReturn(state);
+
+		assertSame(state, BlockStates.read(block));
+		getState.invoke(verify(block), false);
+		verify(block, never()).getState();
+	}
+}
@@ -0,0 +1,87 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils;
+
+import org.junit.Test;
+
+import java.util.Base64;
+
+import static org.junit.Assert.assertTrue;
+
+/**
+ * Size and decode time of the compact format against the Java serialized Base64 strings of older versions.
+ * <p>
+ * Not picked up by a normal build, run with {@code mvn test -Dtest=ItemCodecBenchmark}.
+ * </p>
+ */
+public class ItemCodecBenchmark {
+
+	private static final int WARMUP = 20_000, ITERATIONS = 50_000;
+
+	private static final String[] NAMES = {"plain", "enchanted", "named", "lore", "attribute", "potion", "shulker"};
+
+	@Test
+	public void compareWithLegacy() throws Exception {
+		System.out.println(String.format("%-10s %8s %8s %12s %12s", "item", "compact", "legacy", "compact ns", "legacy ns"));
+
+		for (int i = 0; i < NAMES.length; i++) {
+			SerializedItems.Item item = SerializedItems.all().get(i);
+			String compact = ItemCodec.ARMOR_PREFIX + Base64.getEncoder().encodeToString(ItemCodec.encodeValue(item));
+			String legacy = ItemCodecTest.encodeLegacy(item);
+
+			long compactTime = time(() -> ItemCodec.decodeValue(Base64.getDecoder().decode(compact.substring(ItemCodec.ARMOR_PREFIX.length()))));
+			long legacyTime = time(() -> ItemCodecTest.decodeLegacy(legacy));
+
+			System.out.println(String.format("%-10s %8d %8d %12d %12d", NAMES[i], compact.length(), legacy.length(), compactTime, legacyTime));
+			assertTrue(NAMES[i] + " is not smaller than the legacy string.", compact.length() < legacy.length());
+		}
+	}
+
+	private static long time(Decoder decoder) throws Exception {
+		Object sink = null;
+
+		for (int i = 0; i < WARMUP; i++) {
+			sink = decoder.decode();
+		}
+
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink = decoder.decode();
+		}
+		long time = (System.nanoTime() - start) / ITERATIONS;
+
+		// Keeps the results alive so the decoding is not optimized away
+		if (sink == null)
+			throw new IllegalStateException();
+
+		return time;
+	}
+
+	private interface Decoder {
+		Object decode() throws Exception;
+	}
+}
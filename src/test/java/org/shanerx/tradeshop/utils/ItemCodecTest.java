@@ -0,0 +1,145 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils;
+
+import org.bukkit.util.io.BukkitObjectInputStream;
+import org.bukkit.util.io.BukkitObjectOutputStream;
+import org.junit.Test;
+import org.yaml.snakeyaml.external.biz.base64Coder.Base64Coder;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.Arrays;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+
+public class ItemCodecTest {
+
+	static String encodeLegacy(Object value) throws IOException {
+		ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+		try (BukkitObjectOutputStream dataOutput = new BukkitObjectOutputStream(outputStream)) {
+			dataOutput.writeObject(value);
+		}
+		return Base64Coder.encodeLines(outputStream.toByteArray());
+	}
+
+	static Object decodeLegacy(String data) throws IOException, ClassNotFoundException {
+		try (BukkitObjectInputStream dataInput = new BukkitObjectInputStream(new ByteArrayInputStream(Base64Coder.decodeLines(data)))) {
+			return dataInput.readObject();
+		}
+	}
+
+	private static void assertRoundTrip(SerializedItems.Item item) throws Exception {
+		assertEquals(item, ItemCodec.decodeValue(ItemCodec.encodeValue(item)));
+		assertEquals(item, decodeLegacy(encodeLegacy(item)));
+	}
+
+	@Test
+	public void plainItemRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.plain());
+	}
+
+	@Test
+	public void enchantedItemRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.enchanted());
+	}
+
+	@Test
+	public void namedItemRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.named());
+	}
+
+	@Test
+	public void loreItemRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.lore());
+	}
+
+	@Test
+	public void attributeItemRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.attribute());
+	}
+
+	@Test
+	public void potionRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.potion());
+	}
+
+	@Test
+	public void shulkerWithContentsRoundTrips() throws Exception {
+		assertRoundTrip(SerializedItems.shulker());
+	}
+
+	@Test
+	public void numberTypesArePreserved() throws Exception {
+		for (Object value : Arrays.asList(0, -1, Integer.MIN_VALUE, Integer.MAX_VALUE, Long.MIN_VALUE, 3L,
+				(short) -7, (byte) 0x7F, -0.0, Double.NaN, 2.5f, true, false, null, "")) {
+			assertEquals(value, ItemCodec.decodeValue(ItemCodec.encodeValue(value)));
+		}
+	}
+
+	@Test(expected = IllegalArgumentException.class)
+	public void unsupportedValuesAreRejected() {
+		ItemCodec.encodeValue(new Object());
+	}
+
+	@Test
+	public void truncatedDataIsRejected() {
+		byte[] data = ItemCodec.encodeValue(SerializedItems.enchanted());
+
+		for (int length = 0; length < data.length; length++) {
+			try {
+				ItemCodec.decodeValue(Arrays.copyOf(data, length));
+				fail("Decoded data truncated to " + length + " bytes.");
+			} catch (IOException expected) {
+			}
+		}
+	}
+
+	@Test(expected = IOException.class)
+	public void unknownVersionIsRejected() throws IOException {
+		byte[] data = ItemCodec.encodeValue(SerializedItems.plain());
+		data[0] = 0x7F;
+		ItemCodec.decodeValue(data);
+	}
+
+	@Test(expected = IOException.class)
+	public void nonItemDataIsNotAnItem() throws IOException {
+		ItemCodec.decode(ItemCodec.encodeValue(SerializedItems.plain().serialize()));
+	}
+
+	@Test(expected = IOException.class)
+	public void legacyDataIsNotArmored() throws IOException {
+		ItemCodec.decodeFromString(encodeLegacy(SerializedItems.plain()));
+	}
+
+	@Test(expected = IOException.class)
+	public void invalidArmorIsRejected() throws IOException {
+		ItemCodec.decodeFromString(ItemCodec.ARMOR_PREFIX + "not base64!");
+	}
+}
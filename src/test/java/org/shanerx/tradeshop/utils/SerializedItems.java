@@ -0,0 +1,247 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils;
+
+import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.configuration.serialization.SerializableAs;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Serialized forms of items as CraftBukkit 1.15.2 writes them, the real item classes need a running server.
+ */
+final class SerializedItems {
+
+	static {
+		ConfigurationSerialization.registerClass(Item.class);
+		ConfigurationSerialization.registerClass(Meta.class);
+		ConfigurationSerialization.registerClass(Color.class);
+		ConfigurationSerialization.registerClass(AttributeModifier.class);
+		ConfigurationSerialization.registerClass(PotionEffect.class);
+	}
+
+	private SerializedItems() {
+	}
+
+	static Item plain() {
+		return item("STONE", 32, null);
+	}
+
+	static Item enchanted() {
+		Map<String, Object> enchants = new LinkedHashMap<>();
+		enchants.put("DAMAGE_ALL", 5);
+		enchants.put("DURABILITY", 3);
+
+		Map<String, Object> meta = meta("UNSPECIFIC");
+		meta.put("enchants", enchants);
+		meta.put("Damage", 12);
+		return item("DIAMOND_SWORD", 1, meta);
+	}
+
+	static Item named() {
+		Map<String, Object> meta = meta("UNSPECIFIC");
+		meta.put("display-name", "{\"extra\":[{\"bold\":true,\"color\":\"gold\",\"text\":\"Trader's Blade\"}],\"text\":\"\"}");
+		return item("DIAMOND_SWORD", 1, meta);
+	}
+
+	static Item lore() {
+		Map<String, Object> meta = meta("UNSPECIFIC");
+		meta.put("lore", new ArrayList<>(Arrays.asList(
+				"{\"extra\":[{\"italic\":false,\"color\":\"gray\",\"text\":\"Sold at the market\"}],\"text\":\"\"}",
+				"{\"extra\":[{\"italic\":false,\"color\":\"gray\",\"text\":\"Limited stock\"}],\"text\":\"\"}")));
+		return item("DIAMOND", 16, meta);
+	}
+
+	static Item attribute() {
+		Map<String, Object> modifier = new LinkedHashMap<>();
+		modifier.put("uuid", "5d1b8f8a-39a4-4d6c-9d1e-2a6a3b8f4c21");
+		modifier.put("name", "generic.attackDamage");
+		modifier.put("operation", 0);
+		modifier.put("amount", 7.5);
+		modifier.put("slot", "HAND");
+
+		Map<String, Object> modifiers = new LinkedHashMap<>();
+		modifiers.put("GENERIC_ATTACK_DAMAGE", new ArrayList<>(Arrays.asList(new AttributeModifier(modifier))));
+
+		Map<String, Object> meta = meta("UNSPECIFIC");
+		meta.put("attribute-modifiers", modifiers);
+		return item("DIAMOND_SWORD", 1, meta);
+	}
+
+	static Item potion() {
+		Map<String, Object> color = new LinkedHashMap<>();
+		color.put("RED", 248);
+		color.put("BLUE", 36);
+		color.put("GREEN", 125);
+
+		Map<String, Object> effect = new LinkedHashMap<>();
+		effect.put("effect", 10);
+		effect.put("duration", 900);
+		effect.put("amplifier", 1);
+		effect.put("ambient", false);
+		effect.put("has-particles", true);
+		effect.put("has-icon", true);
+
+		Map<String, Object> meta = meta("POTION");
+		meta.put("potion-type", "minecraft:strong_healing");
+		meta.put("custom-color", new Color(color));
+		meta.put("custom-effects", new ArrayList<>(Arrays.asList(new PotionEffect(effect))));
+		return item("POTION", 1, meta);
+	}
+
+	static Item shulker() {
+		// Block entity NBT holding the contents, deterministic so sizes are comparable between runs
+		byte[] nbt = new byte[1536];
+		new Random(1536).nextBytes(nbt);
+
+		Map<String, Object> meta = meta("TILE_ENTITY");
+		meta.put("blockMaterial", "SHULKER_BOX");
+		meta.put("internal", Base64.getEncoder().encodeToString(nbt));
+		return item("SHULKER_BOX", 1, meta);
+	}
+
+	static List<Item> all() {
+		return Arrays.asList(plain(), enchanted(), named(), lore(), attribute(), potion(), shulker());
+	}
+
+	private static Map<String, Object> meta(String type) {
+		Map<String, Object> meta = new LinkedHashMap<>();
+		meta.put("meta-type", type);
+		return meta;
+	}
+
+	private static Item item(String type, int amount, Map<String, Object> meta) {
+		Map<String, Object> item = new LinkedHashMap<>();
+		item.put("v", 2230);
+		item.put("type", type);
+		if (amount != 1)
+			item.put("amount", amount);
+		if (meta != null)
+			item.put("meta", new Meta(meta));
+		return new Item(item);
+	}
+
+	/**
+	 * Holds the serialized form, not Serializable so BukkitObjectOutputStream wraps it like the real classes
+	 */
+	abstract static class Value implements ConfigurationSerializable {
+
+		private final Map<String, Object> map;
+
+		Value(Map<String, ?> map) {
+			this.map = new LinkedHashMap<>(map);
+			this.map.remove(ConfigurationSerialization.SERIALIZED_TYPE_KEY);
+		}
+
+		@Override
+		public Map<String, Object> serialize() {
+			return new LinkedHashMap<>(map);
+		}
+
+		@Override
+		public boolean equals(Object o) {
+			return o != null && o.getClass() == getClass() && map.equals(((Value) o).map);
+		}
+
+		@Override
+		public int hashCode() {
+			return map.hashCode();
+		}
+
+		@Override
+		public String toString() {
+			return ConfigurationSerialization.getAlias(getClass()) + map;
+		}
+	}
+
+	@SerializableAs("TestItemStack")
+	public static final class Item extends Value {
+
+		Item(Map<String, ?> map) {
+			super(map);
+		}
+
+		public static Item deserialize(Map<String, Object> map) {
+			return new Item(map);
+		}
+	}
+
+	@SerializableAs("TestItemMeta")
+	public static final class Meta extends Value {
+
+		Meta(Map<String, ?> map) {
+			super(map);
+		}
+
+		public static Meta deserialize(Map<String, Object> map) {
+			return new Meta(map);
+		}
+	}
+
+	@SerializableAs("TestColor")
+	public static final class Color extends Value {
+
+		Color(Map<String, ?> map) {
+			super(map);
+		}
+
+		public static Color deserialize(Map<String, Object> map) {
+			return new Color(map);
+		}
+	}
+
+	@SerializableAs("TestAttributeModifier")
+	public static final class AttributeModifier extends Value {
+
+		AttributeModifier(Map<String, ?> map) {
+			super(map);
+		}
+
+		public static AttributeModifier deserialize(Map<String, Object> map) {
+			return new AttributeModifier(map);
+		}
+	}
+
+	@SerializableAs("TestPotionEffect")
+	public static final class PotionEffect extends Value {
+
+		PotionEffect(Map<String, ?> map) {
+			super(map);
+		}
+
+		public static PotionEffect deserialize(Map<String, Object> map) {
+			return new PotionEffect(map);
+		}
+	}
+}
@@ -0,0 +1,177 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Material;
+import org.bukkit.configuration.serialization.ConfigurationSerialization;
+import org.bukkit.inventory.ItemStack;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.TradeShop;
+import org.shanerx.tradeshop.enumys.Setting;
+import org.shanerx.tradeshop.objects.Debug;
+import org.shanerx.tradeshop.utils.ItemSerializer;
+
+import java.io.IOException;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class ItemTemplateCacheTest {
+
+	@BeforeClass
+	public static void setUpServer() {
+		ConfigurationSerialization.registerClass(ItemStack.class);
+		TradeShop plugin = MockServer.start();
+		Debug debug = mock(Debug.class);
+
+		when(plugin.getDebugger()).thenReturn(debug);
+	}
+
+	@AfterClass
+	public static void tearDownServer() {
+		Setting.ITEM_CACHE_SIZE.clearSetting();
+	}
+
+	@Before
+	public void setUp() {
+		setLimit(1);
+	}
+
+	private static void setLimit(int kilobytes) {
+		Setting.ITEM_CACHE_SIZE.setSetting(kilobytes);
+	}
+
+	private static String item(int amount) {
+		return ItemSerializer.itemStackArrayToBase64(new ItemStack(Material.STONE, amount));
+	}
+
+	@Test
+	public void repeatedDecodeIsAHit() throws IOException {
+		ItemTemplateCache cache = new ItemTemplateCache();
+		String data = item(1);
+
+		assertEquals(new ItemStack(Material.STONE), cache.decode(data));
+		assertEquals(new ItemStack(Material.STONE), cache.decode(data));
+
+		assertEquals(1, cache.getMisses());
+		assertEquals(1, cache.getHits());
+		assertEquals(1, cache.getCount());
+		assertEquals(data.length(), cache.getSize());
+	}
+
+	@Test
+	public void decodeReturnsCopies() throws IOException {
+		ItemTemplateCache cache = new ItemTemplateCache();
+		String data = item(1);
+
+		ItemStack first = cache.decode(data);
+		first.setAmount(10);
+		ItemStack second = cache.decode(data);
+
+		assertNotSame(first, second);
+		assertEquals(1, second.getAmount());
+	}
+
+	@Test
+	public void leastRecentlyUsedIsEvictedFirst() throws IOException {
+		ItemTemplateCache cache = new ItemTemplateCache();
+		String first = item(1);
+		String second = item(2);
+
+		cache.decode(first);
+		cache.decode(second);
+
+		int amount = 3;
+		while (cache.getEvictions() == 0) {
+			// Keeps the first item recently used
+			cache.decode(first);
+			cache.decode(item(amount++));
+		}
+
+		assertEquals(1, cache.getEvictions());
+		assertTrue(cache.getSize() <= 1024);
+
+		long misses = cache.getMisses();
+		cache.decode(first);
+		assertEquals(misses, cache.getMisses());
+		cache.decode(second);
+		assertEquals(misses + 1, cache.getMisses());
+	}
+
+	@Test
+	public void sizeStaysWithinLimit() throws IOException {
+		ItemTemplateCache cache = new ItemTemplateCache();
+		long total = 0;
+
+		for (int amount = 1; amount <= 64; amount++) {
+			String data = item(amount);
+			total += data.length();
+			cache.decode(data);
+
+			assertTrue(cache.getSize() <= 1024);
+		}
+
+		assertTrue(total > 1024);
+		assertEquals(64 - cache.getCount(), cache.getEvictions());
+	}
+
+	@Test
+	public void nothingIsCachedWithoutLimit() throws IOException {
+		setLimit(0);
+		ItemTemplateCache cache = new ItemTemplateCache();
+		String data = item(1);
+
+		assertEquals(new ItemStack(Material.STONE), cache.decode(data));
+		assertEquals(new ItemStack(Material.STONE), cache.decode(data));
+
+		assertEquals(0, cache.getCount());
+		assertEquals(0, cache.getSize());
+		assertEquals(2, cache.getMisses());
+	}
+
+	@Test
+	public void reloadEmptiesTheCacheAndReadsTheLimit() throws IOException {
+		ItemTemplateCache cache = new ItemTemplateCache();
+		String data = item(1);
+		cache.decode(data);
+
+		setLimit(0);
+		cache.reload();
+
+		assertEquals(0, cache.getCount());
+		assertEquals(0, cache.getSize());
+		cache.decode(data);
+		assertEquals(0, cache.getCount());
+	}
+}
@@ -0,0 +1,101 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.utils.JsonConfiguration;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+public class JsonDataStoreTest {
+
+	private static final String WORLD = "cleanup_world";
+
+	private File folder, empty, blank, stored;
+
+	@BeforeClass
+	public static void startServer() {
+		MockServer.start();
+	}
+
+	@Before
+	public void setUp() throws IOException {
+		folder = JsonConfiguration.getWorldFolder(WORLD);
+		assertTrue(folder.mkdirs());
+
+		empty = write("c_" + WORLD + "_1_2.json", "{}");
+		blank = write("c_" + WORLD + "_3_4.json", "");
+		stored = write("c_" + WORLD + "_-5_6.json", "{\"" + WORLD + "_-80_64_96\":{}}");
+	}
+
+	@After
+	public void tearDown() {
+		for (File file : folder.listFiles()) {
+			file.delete();
+		}
+		folder.delete();
+	}
+
+	private File write(String name, String content) throws IOException {
+		File file = new File(folder, name);
+		Files.write(file.toPath(), content.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+
+	@Test
+	public void lookupSkipsEmptyFilesWithoutDeletingThem() {
+		JsonDataStore store = new JsonDataStore(false);
+
+		assertEquals(Collections.singletonList(new ShopChunk(WORLD, -5, 6)), store.getChunksWithData(WORLD));
+		assertTrue(empty.exists());
+		assertTrue(blank.exists());
+	}
+
+	@Test
+	public void openRemovesEmptyFiles() {
+		JsonDataStore store = new JsonDataStore(false);
+		store.open();
+
+		assertFalse(empty.exists());
+		assertFalse(blank.exists());
+		assertTrue(stored.exists());
+		assertEquals(0, store.removeEmptyChunkFiles(WORLD));
+	}
+}
@@ -0,0 +1,332 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Material;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.junit.runner.RunWith;
+import org.junit.runners.Parameterized;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.enumys.ShopRole;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.ItemLine;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopChunk;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.objects.ShopUser;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+/**
+ * The contract every {@link ShopDataStore} has to fulfill, run against each backend.
+ */
+@RunWith(Parameterized.class)
+public class ShopDataStoreContractTest {
+
+	private static final String WORLD = "world", OTHER_WORLD = "world_nether";
+	private static final UUID OWNER = UUID.fromString("daf79be7-bc1d-47d3-9896-f97b8d4cea7d"),
+			OTHER_OWNER = UUID.fromString("e296bc43-2972-4111-9843-48fc32302fd4");
+
+	private static File dataFolder;
+
+	private final Supplier<ShopDataStore> factory;
+	private ShopDataStore store;
+
+	public ShopDataStoreContractTest(String name, Supplier<ShopDataStore> factory) {
+		this.factory = factory;
+	}
+
+	@Parameterized.Parameters(name = "{0}")
+	public static Collection<Object[]> stores() {
+		return Arrays.asList(
+				new Object[]{"FLATFILE", (Supplier<ShopDataStore>) () -> new JsonDataStore(false)},
+				new Object[]{"REGION", (Supplier<ShopDataStore>) () -> new JsonDataStore(true)},
+				new Object[]{"SQLITE", (Supplier<ShopDataStore>) SQLiteDataStore::new});
+	}
+
+	@BeforeClass
+	public static void startServer() {
+		dataFolder = MockServer.start().getDataFolder();
+	}
+
+	@Before
+	public void open() throws IOException {
+		deleteData();
+		store = factory.get();
+		store.open();
+	}
+
+	@After
+	public void close() throws IOException {
+		store.close();
+		deleteData();
+	}
+
+	@Test
+	public void savedShopsAreLoaded() {
+		Shop first = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop second = shop(WORLD, 12, 22, OTHER_OWNER, ShopStatus.OUT_OF_STOCK, Material.STONE, Material.DIAMOND);
+		ShopChunk chunk = chunkOf(first);
+
+		save(chunk, first, second);
+
+		Map<String, Shop> loaded = store.loadShops(chunk);
+		assertEquals(keys(first, second), loaded.keySet());
+		assertSameShop(first, loaded.get(key(first)));
+		assertSameShop(second, loaded.get(key(second)));
+		assertEquals(2, store.getShopCount(chunk));
+	}
+
+	@Test
+	public void singleShopIsLoaded() {
+		Shop shop = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+
+		save(chunkOf(shop), shop);
+
+		assertSameShop(shop, store.loadShop(shop.getShopLocationAsSL()));
+		assertNull(store.loadShop(new ShopLocation(WORLD, 11, 64, 21)));
+	}
+
+	@Test
+	public void savingReplacesTheWholeChunk() {
+		Shop kept = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop removed = shop(WORLD, 12, 22, OWNER, ShopStatus.OPEN, Material.STONE, Material.DIAMOND);
+		ShopChunk chunk = chunkOf(kept);
+
+		save(chunk, kept, removed);
+		save(chunk, kept);
+
+		assertEquals(keys(kept), store.loadShops(chunk).keySet());
+		assertNull(store.loadShop(removed.getShopLocationAsSL()));
+		assertEquals(1, store.getShopCount(chunk));
+	}
+
+	@Test
+	public void savingNoShopsDeletesTheChunk() {
+		Shop shop = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		ShopChunk chunk = chunkOf(shop);
+
+		save(chunk, shop);
+		save(chunk);
+
+		assertTrue(store.loadShops(chunk).isEmpty());
+		assertNull(store.loadShop(shop.getShopLocationAsSL()));
+		assertEquals(0, store.getShopCount(chunk));
+		assertTrue(store.getChunksWithData(WORLD).isEmpty());
+	}
+
+	@Test
+	public void chunksWithDataAreListedPerWorld() {
+		Shop first = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop second = shop(WORLD, -100, 700, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop other = shop(OTHER_WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+
+		save(chunkOf(first), first);
+		save(chunkOf(second), second);
+		save(chunkOf(other), other);
+
+		assertEquals(new HashSet<>(Arrays.asList(chunkOf(first), chunkOf(second))), new HashSet<>(store.getChunksWithData(WORLD)));
+		assertEquals(Collections.singletonList(chunkOf(other)), store.getChunksWithData(OTHER_WORLD));
+		assertTrue(store.getChunksWithData("unknown").isEmpty());
+	}
+
+	@Test
+	public void shopsAreFoundByOwner() {
+		Shop owned = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop ownedElsewhere = shop(WORLD, 500, 20, OWNER, ShopStatus.CLOSED, Material.STONE, Material.GOLD_NUGGET);
+		Shop other = shop(WORLD, 12, 22, OTHER_OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+
+		save(chunkOf(owned), owned, other);
+		save(chunkOf(ownedElsewhere), ownedElsewhere);
+		clearInvocations(Bukkit.getServer());
+
+		assertEquals(keys(owned, ownedElsewhere), new HashSet<>(store.findByOwner(OWNER)));
+		assertEquals(keys(other), new HashSet<>(store.findByOwner(OTHER_OWNER)));
+		assertTrue(store.findByOwner(UUID.randomUUID()).isEmpty());
+
+		// Searches run off the main thread where players must not be looked up
+		verify(Bukkit.getServer(), never()).getOfflinePlayer(any(UUID.class));
+	}
+
+	@Test
+	public void shopsAreFoundByStatus() {
+		Shop open = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop closed = shop(WORLD, 12, 22, OWNER, ShopStatus.CLOSED, Material.DIAMOND, Material.GOLD_NUGGET);
+
+		save(chunkOf(open), open, closed);
+
+		assertEquals(keys(open), new HashSet<>(store.findByStatus(ShopStatus.OPEN)));
+		assertEquals(keys(closed), new HashSet<>(store.findByStatus(ShopStatus.CLOSED)));
+		assertTrue(store.findByStatus(ShopStatus.OUT_OF_STOCK).isEmpty());
+	}
+
+	@Test
+	public void shopsAreFoundByProductOrCostItem() {
+		Shop sellsDiamonds = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		Shop buysDiamonds = shop(WORLD, 12, 22, OWNER, ShopStatus.OPEN, Material.STONE, Material.DIAMOND);
+		Shop other = shop(WORLD, 500, 20, OWNER, ShopStatus.OPEN, Material.STONE, Material.GOLD_NUGGET);
+
+		save(chunkOf(sellsDiamonds), sellsDiamonds, buysDiamonds);
+		save(chunkOf(other), other);
+
+		assertEquals(keys(sellsDiamonds, buysDiamonds), new HashSet<>(store.findByItem(Material.DIAMOND)));
+		assertEquals(keys(buysDiamonds, other), new HashSet<>(store.findByItem(Material.STONE)));
+		assertTrue(store.findByItem(Material.CHEST).isEmpty());
+	}
+
+	@Test
+	public void searchesIgnoreDeletedShops() {
+		Shop shop = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+
+		save(chunkOf(shop), shop);
+		save(chunkOf(shop));
+
+		assertTrue(store.findByOwner(OWNER).isEmpty());
+		assertTrue(store.findByStatus(ShopStatus.OPEN).isEmpty());
+		assertTrue(store.findByItem(Material.DIAMOND).isEmpty());
+	}
+
+	@Test
+	public void playersAreSavedAndLoaded() {
+		Map<String, Integer> data = new HashMap<>();
+		data.put("type", 1);
+		data.put("multi", 4);
+
+		store.savePlayer(OWNER, data);
+
+		assertEquals(data, store.loadPlayer(OWNER));
+		Map<String, Integer> unknown = store.loadPlayer(OTHER_OWNER);
+		assertTrue(unknown == null || unknown.isEmpty());
+	}
+
+	@Test
+	public void dataSurvivesReopening() {
+		Shop shop = shop(WORLD, 10, 20, OWNER, ShopStatus.OPEN, Material.DIAMOND, Material.GOLD_NUGGET);
+		save(chunkOf(shop), shop);
+
+		store.close();
+		store = factory.get();
+		store.open();
+
+		assertSameShop(shop, store.loadShop(shop.getShopLocationAsSL()));
+		assertEquals(Collections.singletonList(chunkOf(shop)), store.getChunksWithData(WORLD));
+	}
+
+	private void save(ShopChunk chunk, Shop... shops) {
+		List<ShopRecord> records = new ArrayList<>();
+		for (Shop shop : shops) {
+			records.add(new ShopRecord(shop));
+		}
+
+		store.saveShops(chunk, records);
+	}
+
+	private static Shop shop(String world, int x, int z, UUID owner, ShopStatus status, Material product, Material cost) {
+		return new Shop(new ShopUser(owner.toString(), ShopRole.OWNER), ShopType.TRADE, new ShopLocation(world, x, 64, z),
+				new ShopLocation(world, x, 63, z), new ArrayList<>(), new ArrayList<>(), lines(product, 3), lines(cost, 70),
+				null, null, status);
+	}
+
+	private static List<ItemLine> lines(Material material, int amount) {
+		return new ArrayList<>(Collections.singletonList(new ItemLine("ts:" + material.name(), amount, material)));
+	}
+
+	private static ShopChunk chunkOf(Shop shop) {
+		return new ShopChunk(shop.getShopLocationAsSL());
+	}
+
+	private static String key(Shop shop) {
+		return shop.getShopLocationAsSL().serialize();
+	}
+
+	private static Set<String> keys(Shop... shops) {
+		return Stream.of(shops).map(ShopDataStoreContractTest::key).collect(Collectors.toSet());
+	}
+
+	private static void assertSameShop(Shop expected, Shop actual) {
+		assertNotNull(actual);
+		assertEquals(key(expected), key(actual));
+		assertEquals(expected.getInventoryLocationAsSL().serialize(), actual.getInventoryLocationAsSL().serialize());
+		assertEquals(expected.getOwner().getUUIDString(), actual.getOwner().getUUIDString());
+		assertEquals(expected.getShopType(), actual.getShopType());
+		assertEquals(expected.getStatus(), actual.getStatus());
+		assertLines(expected.getProductLines(), actual.getProductLines());
+		assertLines(expected.getCostLines(), actual.getCostLines());
+	}
+
+	private static void assertLines(List<ItemLine> expected, List<ItemLine> actual) {
+		assertEquals(expected.size(), actual.size());
+
+		for (int i = 0; i < expected.size(); i++) {
+			assertEquals(expected.get(i).getItem(), actual.get(i).getItem());
+			assertEquals(expected.get(i).getAmount(), actual.get(i).getAmount());
+			assertEquals(expected.get(i).getType(), actual.get(i).getType());
+		}
+	}
+
+	private static void deleteData() throws IOException {
+		Path data = new File(dataFolder, "Data").toPath();
+		if (!Files.exists(data))
+			return;
+
+		try (Stream<Path> paths = Files.walk(data)) {
+			for (Path path : paths.sorted(Comparator.reverseOrder()).collect(Collectors.toList())) {
+				Files.delete(path);
+			}
+		}
+	}
+}
@@ -0,0 +1,139 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.data;
+
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+import org.bukkit.scheduler.BukkitScheduler;
+import org.bukkit.scheduler.BukkitTask;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.mockito.InOrder;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.objects.Shop;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+public class SignRenderQueueTest {
+
+	private BukkitScheduler scheduler;
+	private BukkitTask task;
+	private SignRenderQueue queue;
+
+	@BeforeClass
+	public static void setUpServer() {
+		MockServer.start();
+	}
+
+	@Before
+	public void setUp() {
+		scheduler = mock(BukkitScheduler.class);
+		task = mock(BukkitTask.class);
+
+		when(Bukkit.getServer().getScheduler()).thenReturn(scheduler);
+		when(scheduler.runTask(any(Plugin.class), any(Runnable.class))).thenReturn(task);
+		queue = new SignRenderQueue();
+	}
+
+	@Test
+	public void repeatedRequestsRenderOnce() {
+		Shop shop = mock(Shop.class);
+
+		queue.queue(shop);
+		queue.queue(shop);
+		queue.queue(shop);
+		queue.drain();
+
+		verify(shop, times(1)).renderSign();
+	}
+
+	@Test
+	public void oneTaskIsScheduledPerTick() {
+		queue.queue(mock(Shop.class));
+		queue.queue(mock(Shop.class));
+		verify(scheduler, times(1)).runTask(any(Plugin.class), any(Runnable.class));
+
+		queue.drain();
+		queue.queue(mock(Shop.class));
+		verify(scheduler, times(2)).runTask(any(Plugin.class), any(Runnable.class));
+	}
+
+	@Test
+	public void shopsRenderInQueueOrder() {
+		Shop first = mock(Shop.class);
+		Shop second = mock(Shop.class);
+
+		queue.queue(first);
+		queue.queue(second);
+		queue.queue(first);
+		queue.drain();
+
+		InOrder order = inOrder(first, second);
+		order.verify(first).renderSign();
+		order.verify(second).renderSign();
+	}
+
+	@Test
+	public void drainedShopsAreNotRenderedAgain() {
+		Shop shop = mock(Shop.class);
+
+		queue.queue(shop);
+		queue.drain();
+		queue.drain();
+
+		verify(shop, times(1)).renderSign();
+	}
+
+	@Test
+	public void cancelledShopIsNotRendered() {
+		Shop shop = mock(Shop.class);
+
+		queue.queue(shop);
+		queue.cancel(shop);
+		queue.drain();
+
+		verify(shop, never()).renderSign();
+	}
+
+	@Test
+	public void shutdownCancelsTaskAndRenders() {
+		Shop shop = mock(Shop.class);
+
+		queue.queue(shop);
+		queue.shutdown();
+
+		verify(task).cancel();
+		verify(shop).renderSign();
+	}
+}
@@ -0,0 +1,134 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.gsonprocessing;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import org.bukkit.Material;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.enumys.ShopRole;
+import org.shanerx.tradeshop.enumys.ShopStatus;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.ItemLine;
+import org.shanerx.tradeshop.objects.Shop;
+import org.shanerx.tradeshop.objects.ShopLocation;
+import org.shanerx.tradeshop.objects.ShopUser;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+import static org.junit.Assert.assertEquals;
+
+/**
+ * Time and garbage per shop save and load, comparing a reflective Gson built for every call like older
+ * versions did against the shared {@link GsonProcessor} instance.
+ * <p>
+ * Not picked up by a normal build, run with {@code mvn test -Dtest=GsonProcessorBenchmark}.
+ * </p>
+ */
+public class GsonProcessorBenchmark {
+
+	private static final int WARMUP = 20_000, ITERATIONS = 50_000;
+
+	private static Shop shop;
+
+	@BeforeClass
+	public static void setUp() {
+		MockServer.start();
+
+		List<UUID> managers = new ArrayList<>(Arrays.asList(UUID.randomUUID(), UUID.randomUUID()));
+		List<UUID> members = new ArrayList<>(Arrays.asList(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID()));
+		List<ItemLine> product = new ArrayList<>(Arrays.asList(new ItemLine("ts:AQEBAQ==", 3, Material.DIAMOND),
+				new ItemLine("ts:AgICAg==", 1, Material.DIAMOND_SWORD)));
+		List<ItemLine> cost = new ArrayList<>(Arrays.asList(new ItemLine("ts:AwMDAw==", 64, Material.GOLD_NUGGET)));
+
+		shop = new Shop(new ShopUser(UUID.randomUUID().toString(), ShopRole.OWNER), ShopType.TRADE,
+				new ShopLocation("world", 120, 64, -35), new ShopLocation("world", 120, 63, -35),
+				managers, members, product, cost, null, null, ShopStatus.OPEN);
+	}
+
+	private static Gson reflectiveGson() {
+		return new GsonBuilder().setPrettyPrinting().enableComplexMapKeySerialization().serializeNulls().create();
+	}
+
+	@Test
+	public void adaptersReadReflectiveData() {
+		String reflective = reflectiveGson().toJson(shop);
+		Shop read = GsonProcessor.getGson().fromJson(reflective, Shop.class);
+
+		assertEquals(shop.getShopLocationAsSL().serialize(), read.getShopLocationAsSL().serialize());
+		assertEquals(shop.getOwner().getUUID(), read.getOwner().getUUID());
+		assertEquals(GsonProcessor.getGson().toJson(shop), GsonProcessor.getGson().toJson(read));
+	}
+
+	@Test
+	public void compareWithReflective() {
+		String reflective = reflectiveGson().toJson(shop);
+		String adapted = GsonProcessor.getGson().toJson(shop);
+
+		System.out.println(String.format("%-6s %-10s %10s %12s %8s", "op", "gson", "ns/op", "bytes/op", "chars"));
+		print("save", "reflective", () -> reflectiveGson().toJson(shop), reflective.length());
+		print("save", "shared", () -> GsonProcessor.getGson().toJson(shop), adapted.length());
+		print("load", "reflective", () -> reflectiveGson().fromJson(reflective, Shop.class), reflective.length());
+		print("load", "shared", () -> GsonProcessor.getGson().fromJson(adapted, Shop.class), adapted.length());
+	}
+
+	private static void print(String op, String gson, Supplier<Object> task, int chars) {
+		Object sink = null;
+
+		for (int i = 0; i < WARMUP; i++) {
+			sink = task.get();
+		}
+
+		long bytes = allocatedBytes();
+		long start = System.nanoTime();
+		for (int i = 0; i < ITERATIONS; i++) {
+			sink = task.get();
+		}
+		long time = (System.nanoTime() - start) / ITERATIONS;
+		bytes = (allocatedBytes() - bytes) / ITERATIONS;
+
+		// Keeps the results alive so the work is not optimized away
+		if (sink == null)
+			throw new IllegalStateException();
+
+		System.out.println(String.format("%-6s %-10s %10d %12s %8d", op, gson, time, bytes < 0 ? "n/a" : String.valueOf(bytes), chars));
+	}
+
+	private static long allocatedBytes() {
+		if (ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean)
+			return ((com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean()).getThreadAllocatedBytes(Thread.currentThread().getId());
+
+		return -1;
+	}
+}
@@ -0,0 +1,77 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.gsonprocessing;
+
+import org.bukkit.Bukkit;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.enumys.ShopRole;
+import org.shanerx.tradeshop.objects.ShopUser;
+
+import java.util.UUID;
+
+import static org.junit.Assert.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.clearInvocations;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+public class ShopUserAdapterTest {
+
+	private static final String UUID_STRING = "daf79be7-bc1d-47d3-9896-f97b8d4cea7d";
+
+	@BeforeClass
+	public static void startServer() {
+		MockServer.start();
+	}
+
+	@Test
+	public void writesStoredFieldsWithoutLookingUpThePlayer() {
+		ShopUser user = new ShopUser(UUID_STRING, ShopRole.MANAGER);
+		clearInvocations(Bukkit.getServer());
+
+		String json = GsonProcessor.getGson().toJson(user);
+
+		assertEquals("{\"player\":\"" + UUID_STRING + "\",\"role\":\"MANAGER\"}", json);
+		verify(Bukkit.getServer(), never()).getOfflinePlayer(any(UUID.class));
+	}
+
+	@Test
+	public void readsWhatWasWritten() {
+		ShopUser user = GsonProcessor.getGson().fromJson(GsonProcessor.getGson().toJson(new ShopUser(UUID_STRING, ShopRole.OWNER)), ShopUser.class);
+
+		assertEquals(UUID_STRING, user.getUUIDString());
+		assertEquals(ShopRole.OWNER, user.getRole());
+		assertEquals(UUID.fromString(UUID_STRING), user.getUUID());
+	}
+
+	@Test
+	public void missingRoleIsWrittenAsNull() {
+		assertEquals("{\"player\":\"" + UUID_STRING + "\",\"role\":null}", GsonProcessor.getGson().toJson(new ShopUser(UUID_STRING, null)));
+	}
+}
@@ -0,0 +1,189 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.Material;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.junit.After;
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+public class InventoryPlanTest {
+
+	private InventoryPlan plan;
+
+	@After
+	public void tearDown() {
+		if (plan != null)
+			plan.release();
+	}
+
+	/**
+	 * Inventory backed by the array, storage contents share their stacks with the slots like the server's mirrors
+	 */
+	static Inventory inventory(ItemStack... contents) {
+		Inventory inventory = mock(Inventory.class);
+
+		when(inventory.getSize()).thenReturn(contents.length);
+		when(inventory.getStorageContents()).thenAnswer(invocation -> contents.clone());
+		when(inventory.getItem(anyInt())).thenAnswer(invocation -> contents[(int) invocation.getArgument(0)]);
+		doAnswer(invocation -> contents[(int) invocation.getArgument(0)] = invocation.getArgument(1))
+				.when(inventory).setItem(anyInt(), any());
+
+		return inventory;
+	}
+
+	private static List<ItemKey> keys(Material type, int amount) {
+		return Collections.singletonList(ItemKey.of(new ItemStack(type, amount)));
+	}
+
+	@Test
+	public void takeSpreadsOverStacks() {
+		Inventory inventory = inventory(new ItemStack(Material.STONE, 5), null, new ItemStack(Material.STONE, 64));
+		List<ItemStack> taken = new ArrayList<>();
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		assertEquals(-1, plan.take(keys(Material.STONE, 10), 2, taken));
+		plan.apply(inventory);
+
+		assertEquals(2, taken.size());
+		assertNull(inventory.getItem(0));
+		assertEquals(49, inventory.getItem(2).getAmount());
+	}
+
+	@Test
+	public void takeReportsMissingItem() {
+		plan = InventoryPlan.acquire(inventory(new ItemStack(Material.STONE, 5)).getStorageContents());
+
+		assertEquals(0, plan.take(keys(Material.STONE, 6), 1, null));
+	}
+
+	@Test
+	public void giveFillsPartialStacksFirst() {
+		Inventory inventory = inventory(null, new ItemStack(Material.DIAMOND, 60), null);
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		assertEquals(0, plan.give(new ItemStack(Material.DIAMOND), 68));
+		plan.apply(inventory);
+
+		assertEquals(64, inventory.getItem(0).getAmount());
+		assertEquals(64, inventory.getItem(1).getAmount());
+		assertNull(inventory.getItem(2));
+	}
+
+	@Test
+	public void giveReturnsWhatDoesNotFit() {
+		plan = InventoryPlan.acquire(inventory(new ItemStack(Material.STONE, 64), null).getStorageContents());
+
+		assertEquals(6, plan.give(new ItemStack(Material.DIAMOND), 70));
+	}
+
+	@Test
+	public void planningDoesNotChangeTheInventory() {
+		ItemStack stone = new ItemStack(Material.STONE, 5);
+		Inventory inventory = inventory(stone, null);
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		plan.take(keys(Material.STONE, 5), 1, null);
+		plan.give(new ItemStack(Material.DIAMOND), 3);
+
+		assertEquals(5, stone.getAmount());
+		assertNull(inventory.getItem(1));
+	}
+
+	@Test
+	public void unchangedInventoryIsCurrent() {
+		Inventory inventory = inventory(new ItemStack(Material.STONE, 32), null, new ItemStack(Material.DIAMOND, 1));
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		plan.take(keys(Material.STONE, 10), 1, null);
+		plan.give(new ItemStack(Material.GOLD_NUGGET), 4);
+
+		// Slot 2 is not part of the plan
+		inventory.setItem(2, null);
+
+		assertTrue(plan.isCurrent(inventory));
+	}
+
+	@Test
+	public void changedAmountIsNotCurrent() {
+		Inventory inventory = inventory(new ItemStack(Material.STONE, 32));
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		plan.take(keys(Material.STONE, 10), 1, null);
+		inventory.getItem(0).setAmount(12);
+
+		assertFalse(plan.isCurrent(inventory));
+	}
+
+	@Test
+	public void replacedStackIsNotCurrent() {
+		Inventory inventory = inventory(new ItemStack(Material.STONE, 32));
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		plan.take(keys(Material.STONE, 10), 1, null);
+		inventory.setItem(0, new ItemStack(Material.DIAMOND, 32));
+
+		assertFalse(plan.isCurrent(inventory));
+	}
+
+	@Test
+	public void filledEmptySlotIsNotCurrent() {
+		Inventory inventory = inventory(new ItemStack(Material.STONE, 32), null);
+
+		plan = InventoryPlan.acquire(inventory.getStorageContents());
+		plan.take(keys(Material.STONE, 10), 1, null);
+		plan.give(new ItemStack(Material.DIAMOND), 1);
+		inventory.setItem(1, new ItemStack(Material.GOLD_NUGGET, 1));
+
+		assertFalse(plan.isCurrent(inventory));
+	}
+
+	@Test
+	public void releasedPlanIsReused() {
+		InventoryPlan released = InventoryPlan.acquire(new ItemStack[27]);
+		released.release();
+
+		plan = InventoryPlan.acquire(new ItemStack[]{new ItemStack(Material.STONE, 1)});
+		assertTrue(plan == released);
+		assertEquals(-1, plan.take(keys(Material.STONE, 1), 1, null));
+	}
+}
@@ -0,0 +1,138 @@
+/*
+ *
+ *                         Copyright (c) 2016-2019
+ *                SparklingComet @ http://shanerx.org
+ *               KillerOfPie @ http://killerofpie.github.io
+ *
+ *  Licensed under the Apache License, Version 2.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *                http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ *
+ *  NOTICE: All modifications made by others to the source code belong
+ *  to the respective contributor. No contributor should be held liable for
+ *  any damages of any kind, whether be material or moral, which were
+ *  caused by their contribution(s) to the project. See the full License for more information.
+ *
+ */
+
+
+package org.shanerx.tradeshop.utils.trade;
+
+import org.bukkit.Material;
+import org.bukkit.event.block.Action;
+import org.bukkit.inventory.Inventory;
+import org.bukkit.inventory.ItemStack;
+import org.junit.BeforeClass;
+import org.junit.Test;
+import org.shanerx.tradeshop.MockServer;
+import org.shanerx.tradeshop.enumys.ExchangeStatus;
+import org.shanerx.tradeshop.enumys.ShopType;
+import org.shanerx.tradeshop.objects.Shop;
+
+import java.util.Collections;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+import static org.shanerx.tradeshop.utils.trade.InventoryPlanTest.inventory;
+
+public class TradePlanTest {
+
+	@BeforeClass
+	public static void setUp() {
+		MockServer.start();
+	}
+
+	/**
+	 * Shop selling 2 diamonds for 10 stone
+	 */
+	private static Shop shop() {
+		// Initializes the settings before any stubbing starts
+		ShopType type = ShopType.TRADE;
+		Shop shop = mock(Shop.class);
+
+		when(shop.getShopType()).thenReturn(type);
+		when(shop.getCostKeys()).thenReturn(Collections.singletonList(ItemKey.of(new ItemStack(Material.STONE, 10))));
+		when(shop.getProductKeys()).thenReturn(Collections.singletonList(ItemKey.of(new ItemStack(Material.DIAMOND, 2))));
+
+		return shop;
+	}
+
+	@Test
+	public void planIsAppliedToBothInventories() {
+		Inventory player = inventory(new ItemStack(Material.STONE, 25), null), storage = inventory(new ItemStack(Material.DIAMOND, 9), null);
+		TradePlan plan = TradePlanner.plan(shop(), player, storage, 2, Action.RIGHT_CLICK_BLOCK);
+
+		assertEquals(ExchangeStatus.SUCCESS, plan.getStatus());
+		assertTrue(plan.isCurrent(player, storage));
+		plan.apply(player, storage);
+		plan.release();
+
+		assertEquals(5, player.getItem(0).getAmount());
+		assertEquals(4, player.getItem(1).getAmount());
+		assertEquals(5, storage.getItem(0).getAmount());
+		assertEquals(20, storage.getItem(1).getAmount());
+	}
+
+	@Test
+	public void missingCostFails() {
+		TradePlan plan = TradePlanner.plan(shop(), inventory(new ItemStack(Material.STONE, 9)), inventory(new ItemStack(Material.DIAMOND, 9)),
+				1, Action.RIGHT_CLICK_BLOCK);
+
+		assertEquals(ExchangeStatus.PLAYER_NO_COST, plan.getStatus());
+		assertEquals(10, plan.getMissingItem().getAmount());
+		plan.release();
+	}
+
+	@Test
+	public void planMaxFindsLargestMultiplier() {
+		Inventory player = inventory(new ItemStack(Material.STONE, 64), null, null), storage = inventory(new ItemStack(Material.DIAMOND, 7), null);
+		TradePlan plan = TradePlanner.planMax(shop(), player, storage, Action.RIGHT_CLICK_BLOCK);
+
+		assertEquals(3, plan.getMultiplier());
+		plan.release();
+	}
+
+	@Test
+	public void changedInventoryIsNotCurrent() {
+		Inventory player = inventory(new ItemStack(Material.STONE, 10), null), storage = inventory(new ItemStack(Material.DIAMOND, 2), null);
+		TradePlan plan = TradePlanner.plan(shop(), player, storage, 1, Action.RIGHT_CLICK_BLOCK);
+
+		storage.setItem(0, null);
+
+		assertFalse(plan.isCurrent(player, storage));
+		plan.release();
+	}
+
+	@Test
+	public void releasedPlanIsNotCurrentAndOnlyPooledOnce() {
+		Inventory player = inventory(new ItemStack(Material.STONE, 10), null), storage = inventory(new ItemStack(Material.DIAMOND, 2), null);
+		TradePlan plan = TradePlanner.plan(shop(), player, storage, 1, Action.RIGHT_CLICK_BLOCK);
+
+		plan.release();
+		plan.release();
+
+		assertFalse(plan.isCurrent(player, storage));
+		assertNotSame(InventoryPlan.acquire(new ItemStack[1]), InventoryPlan.acquire(new ItemStack[1]));
+	}
+
+	@Test(expected = IllegalStateException.class)
+	public void releasedPlanCannotBeApplied() {
+		Inventory player = inventory(new ItemStack(Material.STONE, 10), null), storage = inventory(new ItemStack(Material.DIAMOND, 2), null);
+		TradePlan plan = TradePlanner.plan(shop(), player, storage, 1, Action.RIGHT_CLICK_BLOCK);
+
+		plan.release();
+		plan.apply(player, storage);
+	}
+}